@@ -13,9 +13,13 @@ module ru.ifmo.rain.zhukov {
     requires info.kgeorgiy.java.advanced.student;
     requires info.kgeorgiy.java.advanced.walk;
     requires java.compiler;
+    requires java.management;
     requires java.rmi;
 
     opens ru.ifmo.rain.zhukov.implementor;
     exports ru.ifmo.rain.zhukov.implementor;
     exports ru.ifmo.rain.zhukov.bank;
+    exports ru.ifmo.rain.zhukov.walk to java.management;
+    exports ru.ifmo.rain.zhukov.concurrent to java.management;
+    exports ru.ifmo.rain.zhukov.metrics to java.management;
 }
\ No newline at end of file
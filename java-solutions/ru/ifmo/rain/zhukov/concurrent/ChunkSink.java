@@ -0,0 +1,29 @@
+package ru.ifmo.rain.zhukov.concurrent;
+
+/**
+ * Receiver of results of chunked mapping in {@link ParallelMapperImpl}.
+ * Every chunk task either reports {@link #complete()} or {@link #fail(Throwable)} once.
+ */
+interface ChunkSink<R> {
+    /**
+     * Accepts result for element at given index.
+     */
+    void set(int index, R value);
+
+    /**
+     * Reports completion of one task.
+     */
+    void complete();
+
+    /**
+     * Reports failure of one task.
+     *
+     * @param e task failure.
+     */
+    void fail(Throwable e);
+
+    /**
+     * Tells whether running tasks may stop early.
+     */
+    boolean isCancelled();
+}
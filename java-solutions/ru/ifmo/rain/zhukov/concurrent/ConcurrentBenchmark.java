@@ -0,0 +1,95 @@
+package ru.ifmo.rain.zhukov.concurrent;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of {@link IterativeParallelism} with and without {@link ParallelMapperImpl}.
+ * Throughput and latency percentiles are reported by the {@code thrpt} and {@code sample} modes,
+ * allocation rate by the {@code gc} profiler enabled in {@code runBenchmarks.sh}.
+ * Per-element cost is given in {@link Blackhole#consumeCPU(long)} tokens.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ConcurrentBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"1", "4", "16"})
+    public int threads;
+
+    @Param({"0", "100", "10000"})
+    public long cost;
+
+    @Param({"false", "true"})
+    public boolean mapper;
+
+    private List<Integer> values;
+    private ParallelMapperImpl parallelMapper;
+    private IterativeParallelism parallelism;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(size);
+        values = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            values.add(random.nextInt());
+        }
+        if (mapper) {
+            parallelMapper = new ParallelMapperImpl(threads);
+            parallelism = new IterativeParallelism(parallelMapper);
+        } else {
+            parallelism = new IterativeParallelism();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (parallelMapper != null) {
+            parallelMapper.close();
+        }
+    }
+
+    private int work(int value) {
+        Blackhole.consumeCPU(cost);
+        return value;
+    }
+
+    @Benchmark
+    public List<Integer> filter() throws InterruptedException {
+        return parallelism.filter(threads, values, value -> (work(value) & 1) == 0);
+    }
+
+    @Benchmark
+    public List<Long> map() throws InterruptedException {
+        return parallelism.map(threads, values, value -> (long) work(value));
+    }
+
+    @Benchmark
+    public Integer maximum() throws InterruptedException {
+        return parallelism.maximum(threads, values, Comparator.comparingInt(this::work));
+    }
+
+    @Benchmark
+    public String join() throws InterruptedException {
+        return parallelism.join(threads, values);
+    }
+
+    /**
+     * Predicate never holds, so all values are tested.
+     */
+    @Benchmark
+    public boolean any() throws InterruptedException {
+        return parallelism.any(threads, values, value -> work(value) == value + 1);
+    }
+}
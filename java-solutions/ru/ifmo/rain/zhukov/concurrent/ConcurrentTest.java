@@ -0,0 +1,209 @@
+package ru.ifmo.rain.zhukov.concurrent;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class ConcurrentTest {
+    private static final List<Integer> VALUES = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+
+    private static List<Integer> squares(List<Integer> values) {
+        return values.stream().map(x -> x * x).collect(Collectors.toList());
+    }
+
+    @Test
+    public void nestedMapperWithFewerThreads() throws InterruptedException {
+        ParallelMapperImpl outer = new ParallelMapperImpl(4);
+        ParallelMapperImpl inner = new ParallelMapperImpl(1);
+        try {
+            List<List<Integer>> result = outer.map(x -> {
+                try {
+                    return inner.map(y -> y * y, VALUES);
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            }, VALUES.subList(0, 16));
+            for (List<Integer> squares : result) {
+                Assert.assertEquals(squares(VALUES), squares);
+            }
+        } finally {
+            outer.close();
+            inner.close();
+        }
+    }
+
+    @Test
+    public void nestedMapperWithMoreThreads() throws InterruptedException {
+        ParallelMapperImpl outer = new ParallelMapperImpl(1);
+        ParallelMapperImpl inner = new ParallelMapperImpl(4);
+        try {
+            List<List<Integer>> result = outer.map(x -> {
+                try {
+                    return inner.map(y -> y * y, VALUES);
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+            }, VALUES.subList(0, 4));
+            for (List<Integer> squares : result) {
+                Assert.assertEquals(squares(VALUES), squares);
+            }
+        } finally {
+            outer.close();
+            inner.close();
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void errorInMappedFunction() throws InterruptedException {
+        ParallelMapperImpl mapper = new ParallelMapperImpl(4);
+        try {
+            AssertionError error = new AssertionError("mapped");
+            try {
+                mapper.map(x -> {
+                    if (x == 42) {
+                        throw error;
+                    }
+                    return x;
+                }, VALUES);
+                Assert.fail("Error expected");
+            } catch (AssertionError e) {
+                Assert.assertSame(error, e);
+            }
+            Assert.assertEquals(squares(VALUES), mapper.map(x -> x * x, VALUES));
+        } finally {
+            mapper.close();
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void sameFailureReportedTwice() throws InterruptedException {
+        ParallelCollector<Integer> collector = new ParallelCollector<>(2, 2);
+        IllegalStateException failure = new IllegalStateException("shared");
+        collector.fail(failure);
+        collector.fail(failure);
+        try {
+            collector.get();
+            Assert.fail("Exception expected");
+        } catch (IllegalStateException e) {
+            Assert.assertSame(failure, e);
+            Assert.assertEquals(0, e.getSuppressed().length);
+        }
+    }
+
+    private static void checkFailingFunctions(IterativeParallelism parallelism) throws InterruptedException {
+        for (int threads : new int[]{1, 4, 16}) {
+            IllegalStateException failure = new IllegalStateException("failure");
+            Comparator<Integer> comparator = (a, b) -> {
+                if (a == 42 || b == 42) {
+                    throw failure;
+                }
+                return Integer.compare(a, b);
+            };
+            try {
+                parallelism.maximum(threads, VALUES, comparator);
+                Assert.fail("Exception expected");
+            } catch (IllegalStateException e) {
+                Assert.assertSame(failure, e);
+            }
+            try {
+                parallelism.all(threads, VALUES, x -> {
+                    if (x == 42) {
+                        throw failure;
+                    }
+                    return true;
+                });
+                Assert.fail("Exception expected");
+            } catch (IllegalStateException e) {
+                Assert.assertSame(failure, e);
+            }
+            try {
+                parallelism.map(threads, VALUES, x -> {
+                    if (x == 42) {
+                        throw new AssertionError("mapped");
+                    }
+                    return x;
+                });
+                Assert.fail("Error expected");
+            } catch (AssertionError e) {
+                Assert.assertEquals("mapped", e.getMessage());
+            }
+            Assert.assertEquals(Integer.valueOf(99), parallelism.maximum(threads, VALUES, Comparator.naturalOrder()));
+        }
+    }
+
+    @Test(timeout = 10_000)
+    public void failingFunctionsOnSharedPool() throws InterruptedException {
+        checkFailingFunctions(new IterativeParallelism());
+    }
+
+    @Test(timeout = 10_000)
+    public void failingFunctionsOnThreadFactory() throws InterruptedException {
+        checkFailingFunctions(new IterativeParallelism(Executors.defaultThreadFactory()));
+    }
+
+    @Test(timeout = 10_000)
+    public void failingFunctionsOnMapper() throws InterruptedException {
+        ParallelMapperImpl mapper = new ParallelMapperImpl(4);
+        try {
+            checkFailingFunctions(new IterativeParallelism(mapper));
+        } finally {
+            mapper.close();
+        }
+    }
+
+    @Test
+    public void statisticsRegisteredOnRequest() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName pattern = new ObjectName("ru.ifmo.rain.zhukov.concurrent:type=QueueStatistics,*");
+        int registered = server.queryNames(pattern, null).size();
+        ParallelMapperImpl mapper = new ParallelMapperImpl(2);
+        try {
+            Assert.assertEquals(registered, server.queryNames(pattern, null).size());
+            ObjectName name = mapper.registerStatistics();
+            Assert.assertEquals(name, mapper.registerStatistics());
+            Assert.assertEquals(2, server.getAttribute(name, "Threads"));
+        } finally {
+            mapper.close();
+        }
+        Assert.assertEquals(registered, server.queryNames(pattern, null).size());
+    }
+
+    @Test(timeout = 10_000)
+    public void statisticsCollectedOnRequest() throws InterruptedException {
+        ParallelMapperImpl mapper = new ParallelMapperImpl(2);
+        try {
+            Assert.assertEquals(squares(VALUES), mapper.map(x -> x * x, VALUES));
+            QueueStatisticsMXBean statistics = mapper.statistics();
+            Assert.assertEquals(0, statistics.getSubmittedTasks());
+            Assert.assertEquals(squares(VALUES), mapper.map(x -> x * x, VALUES));
+            // Workers count a task after its result is published, joining them makes the counts final
+            mapper.close();
+            Assert.assertTrue(statistics.getSubmittedTasks() > 0);
+            Assert.assertEquals(statistics.getSubmittedTasks(), statistics.getCompletedTasks());
+            Assert.assertEquals(statistics.getSubmittedTasks(), statistics.getRunLatency().getCount());
+            Assert.assertEquals(0, statistics.getQueueDepth());
+        } finally {
+            mapper.close();
+        }
+    }
+
+    @Test
+    public void listResultsAreMutable() throws InterruptedException {
+        IterativeParallelism parallelism = new IterativeParallelism();
+        List<Integer> mapped = parallelism.map(4, List.of(1, 2), x -> x);
+        mapped.add(3);
+        Assert.assertEquals(List.of(1, 2, 3), mapped);
+        List<Integer> filtered = parallelism.filter(4, VALUES, x -> x < 2);
+        filtered.add(2);
+        Assert.assertEquals(List.of(0, 1, 2), filtered);
+    }
+}
@@ -5,25 +5,78 @@ import info.kgeorgiy.java.advanced.concurrent.ScalarIP;
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
 
 import java.util.*;
-import java.util.function.Function;
-import java.util.function.Predicate;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.*;
+import java.util.stream.Collector;
 import java.util.stream.Stream;
 
 /**
  * Implementation of {@link ListIP} and {@link ScalarIP} interfaces using iterative parallelism.
+ * The calling thread processes partitions too, other partitions run on the {@link ParallelMapper},
+ * on threads of the given factory or, by default, on a shared bounded pool.
  */
 public class IterativeParallelism implements ListIP {
+    /**
+     * Number of chunks every thread gets on average, so that threads finishing early take over the rest.
+     */
+    private static final int CHUNKS_PER_THREAD = 8;
+
     private ParallelMapper mapper = null;
+    private ThreadFactory threadFactory = null;
+
+    /**
+     * Lazily created pool of daemon threads shared by all instances without mapper and thread factory.
+     * At most {@link #SIZE} partitions of all calls run on it concurrently, idle threads terminate after
+     * {@link #KEEP_ALIVE_SECONDS}, so the pool needs no shutdown.
+     */
+    private static class SharedPool {
+        static final int SIZE = Math.max(32, 4 * Runtime.getRuntime().availableProcessors());
+        static final long KEEP_ALIVE_SECONDS = 5;
+        static final ExecutorService EXECUTOR = create();
+
+        private static ExecutorService create() {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(SIZE, SIZE, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(), task -> {
+                        Thread thread = new Thread(task, "IterativeParallelism-worker");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
+    }
 
 
     /**
      * Creates Iterative Parallelism with default tasks splitting;
+     * partitions run on a shared bounded pool of threads.
      */
     public IterativeParallelism() {
 
     }
 
+    /**
+     * Constructs Iterative Parallelism running partitions on threads created by given factory.
+     *
+     * @param threadFactory factory of threads for tasks splitting.
+     */
+    public IterativeParallelism(ThreadFactory threadFactory) {
+        this.threadFactory = threadFactory;
+    }
+
+    /**
+     * Creates Iterative Parallelism running partitions on virtual threads.
+     *
+     * @return virtual thread Iterative Parallelism.
+     * @throws UnsupportedOperationException if running JVM does not support virtual threads.
+     */
+    public static IterativeParallelism withVirtualThreads() {
+        return new IterativeParallelism(VirtualThreads.factory());
+    }
+
     /**
      * Constructs Iterative Parallelism with given {@link ParallelMapper}
      *
@@ -34,100 +87,304 @@ public class IterativeParallelism implements ListIP {
     }
 
     /**
-     * Collects values by collector.
+     * Range of indices {@code [from, to)}.
+     */
+    private static class Range {
+        final int index;
+        final int from;
+        final int to;
+
+        Range(int index, int from, int to) {
+            this.index = index;
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    /**
+     * Function of a range of indices.
+     */
+    @FunctionalInterface
+    private interface RangeFunction<R> {
+        R apply(int from, int to);
+    }
+
+    /**
+     * Function of a range of indices and position of the range in partition.
+     */
+    @FunctionalInterface
+    private interface IndexedRangeFunction<R> {
+        R apply(int range, int from, int to);
+    }
+
+    /**
+     * Applies function to ranges of indices in parallel.
      *
-     * @param threads   number of concurrent threads.
-     * @param values    values to reduce.
-     * @param collector collector.
-     * @param combiner  combiner for partial results.
-     * @return result of values collection.
+     * @param threads number of concurrent threads.
+     * @param size    number of indices.
+     * @param f       function of a range.
+     * @return results for ranges in order.
      * @throws InterruptedException if executing thread was interrupted.
      */
-    private <T, R> R collect(int threads, List<? extends T> values,
-                             Function<Stream<? extends T>, ? extends R> collector, Function<Stream<? extends R>, ? extends R> combiner) throws InterruptedException {
-        List<Stream<? extends T>> partition = createPartition(threads, values);
-        List<R> parallelResults;
-        if (mapper == null) {
-            List<Thread> jobs = new ArrayList<>();
-            parallelResults = new ArrayList<>(Collections.nCopies(partition.size(), null));
-            InterruptedException exception = new InterruptedException("Thread interruption error");
-            for (int i = 0; i < partition.size(); i++) {
-                int thread = i;
-                jobs.add(new Thread(() -> parallelResults.set(thread, collector.apply(partition.get(thread)))));
-                jobs.get(jobs.size() - 1).start();
-            }
-            for (Thread job : jobs) {
+    private <R> List<R> run(int threads, int size, RangeFunction<? extends R> f) throws InterruptedException {
+        return run(threads, size, f, null);
+    }
+
+    /**
+     * Applies function to ranges of indices in parallel until all ranges are processed or {@code stop} is set.
+     * Indices are split into more ranges than threads, and every thread takes the next unprocessed range
+     * from a shared counter, so slow elements delay only the ranges containing them.
+     * When {@code stop} is set, returns without waiting for other threads, results of unfinished ranges are {@code null}.
+     * The first exception thrown by {@code f} is rethrown without waiting for other threads, which take no more ranges;
+     * exceptions thrown later are suppressed by it.
+     *
+     * @param threads number of concurrent threads.
+     * @param size    number of indices.
+     * @param f       function of a range.
+     * @param stop    early termination flag, set by {@code f}, may be {@code null}.
+     * @return results for ranges in order.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    private <R> List<R> run(int threads, int size, RangeFunction<? extends R> f, AtomicBoolean stop) throws InterruptedException {
+        return runIndexed(threads, size, (range, from, to) -> f.apply(from, to), stop);
+    }
+
+    /**
+     * Applies function to ranges of indices in parallel, passing position of every range in partition to it.
+     * Partition depends on {@code threads} and {@code size} only, so several calls with them
+     * get the same ranges at the same positions.
+     *
+     * @param threads number of concurrent threads.
+     * @param size    number of indices.
+     * @param f       function of a range.
+     * @return results for ranges in order.
+     * @throws InterruptedException if executing thread was interrupted.
+     * @see #run(int, int, RangeFunction, AtomicBoolean)
+     */
+    private <R> List<R> runIndexed(int threads, int size, IndexedRangeFunction<? extends R> f) throws InterruptedException {
+        return runIndexed(threads, size, f, null);
+    }
+
+    /**
+     * Applies function to ranges of indices in parallel until all ranges are processed or {@code stop} is set,
+     * passing position of every range in partition to it.
+     *
+     * @param threads number of concurrent threads.
+     * @param size    number of indices.
+     * @param f       function of a range.
+     * @param stop    early termination flag, set by {@code f}, may be {@code null}.
+     * @return results for ranges in order.
+     * @throws InterruptedException if executing thread was interrupted.
+     * @see #run(int, int, RangeFunction, AtomicBoolean)
+     */
+    private <R> List<R> runIndexed(int threads, int size, IndexedRangeFunction<? extends R> f, AtomicBoolean stop) throws InterruptedException {
+        List<Range> partition = createPartition(threads, size);
+        if (mapper != null) {
+            return mapper.map(range -> f.apply(range.index, range.from, range.to), partition);
+        }
+        List<R> parallelResults = new ArrayList<>(Collections.nCopies(partition.size(), null));
+        if (partition.isEmpty()) {
+            return parallelResults;
+        }
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger remaining = new AtomicInteger(partition.size());
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        CountDownLatch finished = new CountDownLatch(1);
+        Runnable job = () -> {
+            int i;
+            while (failure.get() == null && (stop == null || !stop.get()) && (i = next.getAndIncrement()) < partition.size()) {
+                Range range = partition.get(i);
                 try {
-                    job.join();
-                } catch (InterruptedException e) {
-                    exception.addSuppressed(e);
+                    parallelResults.set(i, f.apply(i, range.from, range.to));
+                } catch (Throwable e) {
+                    if (!failure.compareAndSet(null, e) && failure.get() != e) {
+                        failure.get().addSuppressed(e);
+                    }
+                } finally {
+                    if (remaining.decrementAndGet() == 0 || stop != null && stop.get() || failure.get() != null) {
+                        finished.countDown();
+                    }
                 }
             }
-            if (exception.getSuppressed().length != 0) {
-                throw exception;
-            }
-        } else {
-            parallelResults = mapper.map(collector, partition);
+        };
+        Executor executor = threadFactory != null ? task -> threadFactory.newThread(task).start() : SharedPool.EXECUTOR;
+        for (int i = 1; i < Math.min(threads, partition.size()); i++) {
+            executor.execute(job);
+        }
+        job.run();
+        finished.await();
+        Throwable e = failure.get();
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        } else if (e instanceof Error) {
+            throw (Error) e;
+        } else if (e != null) {
+            throw new IllegalStateException(e);
         }
-        return combiner.apply(parallelResults.stream());
+        return parallelResults;
     }
 
     /**
-     * Reduces values by function.
+     * Maps values and reduces the results by monoid.
+     * Partitions are reduced starting from {@link Monoid#identity()}, and partial results are combined in order.
      *
      * @param threads number of concurrent threads.
      * @param values  values to reduce.
-     * @param f       reduce function.
-     * @return result of values reduction.
+     * @param lift    mapping of a value to monoid.
+     * @param monoid  monoid of results.
+     * @return result of values reduction, identity for empty values.
      * @throws InterruptedException if executing thread was interrupted.
      */
-    private <T> T reduce(int threads, List<? extends T> values,
-                         Function<Stream<? extends T>, T> f) throws InterruptedException {
-        return collect(threads, values, f, f);
+    public <T, R> R mapReduce(int threads, List<? extends T> values,
+                              Function<? super T, ? extends R> lift, Monoid<R> monoid) throws InterruptedException {
+        List<? extends T> elements = randomAccess(values);
+        R result = monoid.identity();
+        for (R partial : run(threads, elements.size(), (from, to) -> {
+            R partialResult = monoid.identity();
+            for (T value : elements.subList(from, to)) {
+                partialResult = monoid.combine(partialResult, lift.apply(value));
+            }
+            return partialResult;
+        })) {
+            result = monoid.combine(result, partial);
+        }
+        return result;
     }
 
     /**
-     * Transforms list of values by transformation.
+     * Collects values by {@link Collector}.
+     * Every partition is accumulated into its own container, containers are merged in order and finished once.
      *
-     * @param threads        number of concurrent threads.
-     * @param values         values to filter.
-     * @param transformation lists streams transformation.
-     * @return transformed list of values
+     * @param threads   number of concurrent threads.
+     * @param values    values to collect.
+     * @param collector collector of values.
+     * @return result of values collection.
      * @throws InterruptedException if executing thread was interrupted.
      */
-    private <T, R> List<R> transform(int threads, List<? extends T> values,
-                                     Function<Stream<? extends T>, Stream<? extends R>> transformation) throws InterruptedException {
-        return collect(threads, values,
-                transformation,
-                stream -> stream.flatMap(Function.identity())).collect(Collectors.toList());
+    public <T, A, R> R collect(int threads, List<? extends T> values,
+                               Collector<? super T, A, R> collector) throws InterruptedException {
+        List<? extends T> elements = randomAccess(values);
+        BiConsumer<A, ? super T> accumulator = collector.accumulator();
+        List<A> partials = run(threads, elements.size(), (from, to) -> {
+            A container = collector.supplier().get();
+            for (T value : elements.subList(from, to)) {
+                accumulator.accept(container, value);
+            }
+            return container;
+        });
+        A result = partials.isEmpty() ? collector.supplier().get() : partials.get(0);
+        for (int i = 1; i < partials.size(); i++) {
+            result = collector.combiner().apply(result, partials.get(i));
+        }
+        return collector.finisher().apply(result);
+    }
+
+    /**
+     * Reduces values by function.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to reduce.
+     * @param f       reduce function.
+     * @return result of values reduction.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    private <T> T reduce(int threads, List<? extends T> values,
+                         Function<Stream<? extends T>, T> f) throws InterruptedException {
+        List<? extends T> elements = randomAccess(values);
+        return f.apply(run(threads, elements.size(), (from, to) -> f.apply(elements.subList(from, to).stream())).stream());
     }
 
     /**
      * {@inheritDoc}
+     * Predicate is evaluated once per element and matches are written straight into the exactly sized result,
+     * see {@link #filterIndices}.
      */
     @Override
     public <T> List<T> filter(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
-        return transform(threads, values,
-                stream -> stream.filter(predicate));
+        List<? extends T> elements = randomAccess(values);
+        return asList(filterIndices(threads, elements.size(), i -> predicate.test(elements.get(i)),
+                Object[]::new, (result, index, i) -> result[index] = elements.get(i)));
     }
 
     /**
      * {@inheritDoc}
+     * Results are written straight into their positions in the exactly sized result.
      */
     @Override
     public <T, U> List<U> map(int threads, List<? extends T> values, Function<? super T, ? extends U> f) throws InterruptedException {
-        return transform(threads, values,
-                stream -> stream.map(f));
+        List<? extends T> elements = randomAccess(values);
+        Object[] result = new Object[elements.size()];
+        run(threads, elements.size(), (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = f.apply(elements.get(i));
+            }
+            return null;
+        });
+        return asList(result);
+    }
+
+    /**
+     * Returns prefix sums of per-range sizes, so that range {@code i} occupies {@code [offsets[i], offsets[i + 1])}.
+     *
+     * @param sizes sizes of ranges in order.
+     * @return offsets of ranges followed by total size.
+     */
+    private static int[] offsets(List<Integer> sizes) {
+        int[] offsets = new int[sizes.size() + 1];
+        for (int i = 0; i < sizes.size(); i++) {
+            offsets[i + 1] = checkedLength((long) offsets[i] + sizes.get(i));
+        }
+        return offsets;
+    }
+
+    /**
+     * Returns mutable list of values, as {@link java.util.stream.Collectors#toList()} did.
+     *
+     * @param values values in order.
+     * @return {@link ArrayList} of values.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> asList(Object[] values) {
+        return new ArrayList<>(Arrays.asList((T[]) values));
     }
 
     /**
      * {@inheritDoc}
+     * The first pass converts elements to strings and measures every partition.
+     * The result buffer is allocated once, and the second pass copies partitions into it at their offsets.
      */
     @Override
     public String join(int threads, List<?> values) throws InterruptedException {
-        return collect(threads, values,
-                stream -> stream.map(Object::toString).collect(Collectors.joining()),
-                stream -> stream.collect(Collectors.joining()));
+        List<?> elements = randomAccess(values);
+        String[] strings = new String[elements.size()];
+        List<Integer> lengths = run(threads, elements.size(), (from, to) -> {
+            long length = 0;
+            int i = from;
+            for (Object value : elements.subList(from, to)) {
+                String string = value.toString();
+                strings[i++] = string;
+                length += string.length();
+            }
+            return checkedLength(length);
+        });
+        int[] offsets = offsets(lengths);
+        char[] result = new char[offsets[lengths.size()]];
+        runIndexed(threads, elements.size(), (range, from, to) -> {
+            int offset = offsets[range];
+            for (int i = from; i < to; i++) {
+                strings[i].getChars(0, strings[i].length(), result, offset);
+                offset += strings[i].length();
+            }
+            return null;
+        });
+        return new String(result);
+    }
+
+    private static int checkedLength(long length) {
+        if (length > Integer.MAX_VALUE) {
+            throw new OutOfMemoryError("Joined string is too long: " + length);
+        }
+        return (int) length;
     }
 
     /**
@@ -151,9 +408,7 @@ public class IterativeParallelism implements ListIP {
      */
     @Override
     public <T> boolean all(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
-        return collect(threads, values,
-                stream -> stream.allMatch(predicate),
-                stream -> stream.allMatch(Boolean::booleanValue));
+        return !anyMatch(threads, values, predicate.negate());
     }
 
     /**
@@ -161,32 +416,580 @@ public class IterativeParallelism implements ListIP {
      */
     @Override
     public <T> boolean any(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
-        return collect(threads, values,
-                stream -> stream.anyMatch(predicate),
-                stream -> stream.anyMatch(Boolean::booleanValue));
+        return anyMatch(threads, values, predicate);
     }
 
     /**
-     * Splits list of values fo given number of threads.
+     * Tells whether any value satisfies predicate.
+     * Partitions share a flag, check it before every element and stop as soon as any of them finds a match.
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to test.
+     * @param predicate test predicate.
+     * @return whether a matching value was found.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    private <T> boolean anyMatch(int threads, List<? extends T> values, Predicate<? super T> predicate) throws InterruptedException {
+        List<? extends T> elements = randomAccess(values);
+        AtomicBoolean found = new AtomicBoolean();
+        run(threads, elements.size(), (from, to) -> {
+            for (Iterator<? extends T> it = elements.subList(from, to).iterator(); it.hasNext() && !found.get(); ) {
+                if (predicate.test(it.next())) {
+                    found.set(true);
+                }
+            }
+            return null;
+        }, found);
+        return found.get();
+    }
+
+    /**
+     * Returns maximum of {@code int} values.
      *
      * @param threads number of concurrent threads.
-     * @param values  list of values to split
-     * @return partition for given number of threads.
+     * @param values  values to get maximum of.
+     * @return maximum of given values.
+     * @throws InterruptedException   if executing thread was interrupted.
+     * @throws NoSuchElementException if no values are given.
+     */
+    public int maximum(int threads, int[] values) throws InterruptedException {
+        return reduceRanges(threads, values.length, (from, to) -> {
+            int result = values[from];
+            for (int i = from + 1; i < to; i++) {
+                result = Math.max(result, values[i]);
+            }
+            return result;
+        }, Math::max);
+    }
+
+    /**
+     * Returns minimum of {@code int} values.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get minimum of.
+     * @return minimum of given values.
+     * @throws InterruptedException   if executing thread was interrupted.
+     * @throws NoSuchElementException if no values are given.
+     */
+    public int minimum(int threads, int[] values) throws InterruptedException {
+        return reduceRanges(threads, values.length, (from, to) -> {
+            int result = values[from];
+            for (int i = from + 1; i < to; i++) {
+                result = Math.min(result, values[i]);
+            }
+            return result;
+        }, Math::min);
+    }
+
+    /**
+     * Returns sum of {@code int} values.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to sum.
+     * @return sum of given values, computed in {@code long}.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public long sum(int threads, int[] values) throws InterruptedException {
+        return values.length == 0 ? 0 : reduceRanges(threads, values.length, (from, to) -> {
+            long result = 0;
+            for (int i = from; i < to; i++) {
+                result += values[i];
+            }
+            return result;
+        }, Long::sum);
+    }
+
+    /**
+     * Returns number of {@code int} values satisfying predicate.
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to test.
+     * @param predicate test predicate.
+     * @return number of values satisfying predicate.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public int count(int threads, int[] values, IntPredicate predicate) throws InterruptedException {
+        return total(run(threads, values.length, (from, to) -> {
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }));
+    }
+
+    /**
+     * Filters {@code int} values by predicate.
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to filter.
+     * @param predicate filter predicate.
+     * @return values satisfying predicate in original order.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public int[] filter(int threads, int[] values, IntPredicate predicate) throws InterruptedException {
+        return filterIndices(threads, values.length, i -> predicate.test(values[i]),
+                int[]::new, (result, index, i) -> result[index] = values[i]);
+    }
+
+    /**
+     * Maps {@code int} values by function.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to map.
+     * @param f       mapping function.
+     * @return mapped values in original order.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public int[] map(int threads, int[] values, IntUnaryOperator f) throws InterruptedException {
+        int[] result = new int[values.length];
+        run(threads, values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = f.applyAsInt(values[i]);
+            }
+            return null;
+        });
+        return result;
+    }
+
+    /**
+     * Reduces {@code int} values by associative operation.
+     *
+     * @param threads  number of concurrent threads.
+     * @param values   values to reduce.
+     * @param identity identity of the operation.
+     * @param op       associative operation.
+     * @return result of values reduction.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public int reduce(int threads, int[] values, int identity, IntBinaryOperator op) throws InterruptedException {
+        return values.length == 0 ? identity : op.applyAsInt(identity, reduce(threads, values, op));
+    }
+
+    /**
+     * Reduces non-empty {@code int} values by associative operation without identity.
      */
-    private <T> List<Stream<? extends T>> createPartition(int threads, List<? extends T> values) {
-        int[] borders = new int[threads + 1];
-        int partSize = values.size() / threads;
-        int restNum = values.size() % threads;
-        for (int i = 0; i <= threads; i++) {
-            borders[i] = i * partSize + Math.min(i, restNum);
+    private int reduce(int threads, int[] values, IntBinaryOperator op) throws InterruptedException {
+        return reduceRanges(threads, values.length, (from, to) -> {
+            int result = values[from];
+            for (int i = from + 1; i < to; i++) {
+                result = op.applyAsInt(result, values[i]);
+            }
+            return result;
+        }, op::applyAsInt);
+    }
+
+    /**
+     * Returns maximum of {@code long} values.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get maximum of.
+     * @return maximum of given values.
+     * @throws InterruptedException   if executing thread was interrupted.
+     * @throws NoSuchElementException if no values are given.
+     */
+    public long maximum(int threads, long[] values) throws InterruptedException {
+        return reduceRanges(threads, values.length, (from, to) -> {
+            long result = values[from];
+            for (int i = from + 1; i < to; i++) {
+                result = Math.max(result, values[i]);
+            }
+            return result;
+        }, Math::max);
+    }
+
+    /**
+     * Returns minimum of {@code long} values.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get minimum of.
+     * @return minimum of given values.
+     * @throws InterruptedException   if executing thread was interrupted.
+     * @throws NoSuchElementException if no values are given.
+     */
+    public long minimum(int threads, long[] values) throws InterruptedException {
+        return reduceRanges(threads, values.length, (from, to) -> {
+            long result = values[from];
+            for (int i = from + 1; i < to; i++) {
+                result = Math.min(result, values[i]);
+            }
+            return result;
+        }, Math::min);
+    }
+
+    /**
+     * Returns sum of {@code long} values.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to sum.
+     * @return sum of given values.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public long sum(int threads, long[] values) throws InterruptedException {
+        return values.length == 0 ? 0 : reduceRanges(threads, values.length, (from, to) -> {
+            long result = 0;
+            for (int i = from; i < to; i++) {
+                result += values[i];
+            }
+            return result;
+        }, Long::sum);
+    }
+
+    /**
+     * Returns number of {@code long} values satisfying predicate.
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to test.
+     * @param predicate test predicate.
+     * @return number of values satisfying predicate.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public int count(int threads, long[] values, LongPredicate predicate) throws InterruptedException {
+        return total(run(threads, values.length, (from, to) -> {
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }));
+    }
+
+    /**
+     * Filters {@code long} values by predicate.
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to filter.
+     * @param predicate filter predicate.
+     * @return values satisfying predicate in original order.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public long[] filter(int threads, long[] values, LongPredicate predicate) throws InterruptedException {
+        return filterIndices(threads, values.length, i -> predicate.test(values[i]),
+                long[]::new, (result, index, i) -> result[index] = values[i]);
+    }
+
+    /**
+     * Maps {@code long} values by function.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to map.
+     * @param f       mapping function.
+     * @return mapped values in original order.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public long[] map(int threads, long[] values, LongUnaryOperator f) throws InterruptedException {
+        long[] result = new long[values.length];
+        run(threads, values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = f.applyAsLong(values[i]);
+            }
+            return null;
+        });
+        return result;
+    }
+
+    /**
+     * Reduces {@code long} values by associative operation.
+     *
+     * @param threads  number of concurrent threads.
+     * @param values   values to reduce.
+     * @param identity identity of the operation.
+     * @param op       associative operation.
+     * @return result of values reduction.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public long reduce(int threads, long[] values, long identity, LongBinaryOperator op) throws InterruptedException {
+        return values.length == 0 ? identity : op.applyAsLong(identity, reduce(threads, values, op));
+    }
+
+    /**
+     * Reduces non-empty {@code long} values by associative operation without identity.
+     */
+    private long reduce(int threads, long[] values, LongBinaryOperator op) throws InterruptedException {
+        return reduceRanges(threads, values.length, (from, to) -> {
+            long result = values[from];
+            for (int i = from + 1; i < to; i++) {
+                result = op.applyAsLong(result, values[i]);
+            }
+            return result;
+        }, op::applyAsLong);
+    }
+
+    /**
+     * Returns maximum of {@code double} values.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get maximum of.
+     * @return maximum of given values.
+     * @throws InterruptedException   if executing thread was interrupted.
+     * @throws NoSuchElementException if no values are given.
+     */
+    public double maximum(int threads, double[] values) throws InterruptedException {
+        return reduceRanges(threads, values.length, (from, to) -> {
+            double result = values[from];
+            for (int i = from + 1; i < to; i++) {
+                result = Math.max(result, values[i]);
+            }
+            return result;
+        }, Math::max);
+    }
+
+    /**
+     * Returns minimum of {@code double} values.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to get minimum of.
+     * @return minimum of given values.
+     * @throws InterruptedException   if executing thread was interrupted.
+     * @throws NoSuchElementException if no values are given.
+     */
+    public double minimum(int threads, double[] values) throws InterruptedException {
+        return reduceRanges(threads, values.length, (from, to) -> {
+            double result = values[from];
+            for (int i = from + 1; i < to; i++) {
+                result = Math.min(result, values[i]);
+            }
+            return result;
+        }, Math::min);
+    }
+
+    /**
+     * Returns sum of {@code double} values.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to sum.
+     * @return sum of given values.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public double sum(int threads, double[] values) throws InterruptedException {
+        return values.length == 0 ? 0 : reduceRanges(threads, values.length, (from, to) -> {
+            double result = 0;
+            for (int i = from; i < to; i++) {
+                result += values[i];
+            }
+            return result;
+        }, Double::sum);
+    }
+
+    /**
+     * Returns number of {@code double} values satisfying predicate.
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to test.
+     * @param predicate test predicate.
+     * @return number of values satisfying predicate.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public int count(int threads, double[] values, DoublePredicate predicate) throws InterruptedException {
+        return total(run(threads, values.length, (from, to) -> {
+            int count = 0;
+            for (int i = from; i < to; i++) {
+                if (predicate.test(values[i])) {
+                    count++;
+                }
+            }
+            return count;
+        }));
+    }
+
+    /**
+     * Filters {@code double} values by predicate.
+     *
+     * @param threads   number of concurrent threads.
+     * @param values    values to filter.
+     * @param predicate filter predicate.
+     * @return values satisfying predicate in original order.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public double[] filter(int threads, double[] values, DoublePredicate predicate) throws InterruptedException {
+        return filterIndices(threads, values.length, i -> predicate.test(values[i]),
+                double[]::new, (result, index, i) -> result[index] = values[i]);
+    }
+
+    /**
+     * Maps {@code double} values by function.
+     *
+     * @param threads number of concurrent threads.
+     * @param values  values to map.
+     * @param f       mapping function.
+     * @return mapped values in original order.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public double[] map(int threads, double[] values, DoubleUnaryOperator f) throws InterruptedException {
+        double[] result = new double[values.length];
+        run(threads, values.length, (from, to) -> {
+            for (int i = from; i < to; i++) {
+                result[i] = f.applyAsDouble(values[i]);
+            }
+            return null;
+        });
+        return result;
+    }
+
+    /**
+     * Reduces {@code double} values by associative operation.
+     *
+     * @param threads  number of concurrent threads.
+     * @param values   values to reduce.
+     * @param identity identity of the operation.
+     * @param op       associative operation.
+     * @return result of values reduction.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    public double reduce(int threads, double[] values, double identity, DoubleBinaryOperator op) throws InterruptedException {
+        return values.length == 0 ? identity : op.applyAsDouble(identity, reduce(threads, values, op));
+    }
+
+    /**
+     * Reduces non-empty {@code double} values by associative operation without identity.
+     */
+    private double reduce(int threads, double[] values, DoubleBinaryOperator op) throws InterruptedException {
+        return reduceRanges(threads, values.length, (from, to) -> {
+            double result = values[from];
+            for (int i = from + 1; i < to; i++) {
+                result = op.applyAsDouble(result, values[i]);
+            }
+            return result;
+        }, op::applyAsDouble);
+    }
+
+    /**
+     * Returns sum of per-range counts.
+     *
+     * @param counts counts of ranges.
+     * @return total count.
+     */
+    private static int total(List<Integer> counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += count;
         }
-        List<Stream<? extends T>> result = new ArrayList<>();
-        for (int i = 0; i < threads; i++) {
-            if (borders[i + 1] - borders[i] != 0) {
-                result.add(values.subList(borders[i], borders[i + 1]).stream());
-            } else {
-                break;
+        return total;
+    }
+
+    /**
+     * Copier of an element at source index into array at target index.
+     */
+    @FunctionalInterface
+    private interface IndexCopier<A> {
+        void copy(A target, int targetIndex, int sourceIndex);
+    }
+
+    /**
+     * Copies elements at indices satisfying test into exactly sized array, in order.
+     * Test is evaluated once per index in the first pass, which records matches of every range in its bit mask.
+     * Prefix sums of the match counts give each range its offset, and the second pass copies matches
+     * straight into the result, skipping non-matching indices a word of the mask at a time.
+     *
+     * @param threads   number of concurrent threads.
+     * @param size      number of indices.
+     * @param test      test of an index.
+     * @param allocator allocator of result array of given length.
+     * @param copier    copier of matching elements.
+     * @return array of matching elements.
+     * @throws InterruptedException if executing thread was interrupted.
+     */
+    private <A> A filterIndices(int threads, int size, IntPredicate test,
+                                IntFunction<A> allocator, IndexCopier<A> copier) throws InterruptedException {
+        List<long[]> masks = run(threads, size, (from, to) -> {
+            long[] mask = new long[(to - from + Long.SIZE - 1) / Long.SIZE];
+            for (int i = from; i < to; i++) {
+                if (test.test(i)) {
+                    mask[(i - from) / Long.SIZE] |= 1L << (i - from);
+                }
+            }
+            return mask;
+        });
+        List<Integer> counts = new ArrayList<>(masks.size());
+        for (long[] mask : masks) {
+            int count = 0;
+            for (long word : mask) {
+                count += Long.bitCount(word);
+            }
+            counts.add(count);
+        }
+        int[] offsets = offsets(counts);
+        A result = allocator.apply(offsets[counts.size()]);
+        runIndexed(threads, size, (range, from, to) -> {
+            long[] mask = masks.get(range);
+            int offset = offsets[range];
+            for (int word = 0; word < mask.length; word++) {
+                for (long bits = mask[word]; bits != 0; bits &= bits - 1) {
+                    copier.copy(result, offset++, from + word * Long.SIZE + Long.numberOfTrailingZeros(bits));
+                }
             }
+            return null;
+        });
+        return result;
+    }
+
+    /**
+     * Reduces non-empty ranges of indices in parallel and combines their results in order.
+     *
+     * @param threads  number of concurrent threads.
+     * @param size     number of indices.
+     * @param partial  reduction of a range.
+     * @param combiner associative combiner of partial results.
+     * @return result of reduction.
+     * @throws InterruptedException   if executing thread was interrupted.
+     * @throws NoSuchElementException if there are no indices.
+     */
+    private <R> R reduceRanges(int threads, int size, RangeFunction<? extends R> partial,
+                               BinaryOperator<R> combiner) throws InterruptedException {
+        if (size == 0) {
+            throw new NoSuchElementException("No values given");
+        }
+        List<R> partials = run(threads, size, partial);
+        R result = partials.get(0);
+        for (int i = 1; i < partials.size(); i++) {
+            result = combiner.apply(result, partials.get(i));
+        }
+        return result;
+    }
+
+    /**
+     * Returns random access view of values.
+     * Lists without {@link RandomAccess} are copied once, so that ranges do not walk them from the start.
+     *
+     * @param values values to access.
+     * @return given values if they support random access, their copy otherwise.
+     */
+    private static <T> List<? extends T> randomAccess(List<? extends T> values) {
+        if (values instanceof RandomAccess) {
+            return values;
+        }
+        @SuppressWarnings("unchecked") List<? extends T> copy = (List<? extends T>) Arrays.asList(values.toArray());
+        return copy;
+    }
+
+    /**
+     * Splits range of indices into chunks for given number of threads.
+     * Unless there is a single thread, every thread gets {@link #CHUNKS_PER_THREAD} chunks on average,
+     * but chunks are never empty.
+     *
+     * @param threads number of concurrent threads.
+     * @param size    number of indices to split.
+     * @return partition for given number of threads.
+     */
+    private static List<Range> createPartition(int threads, int size) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+        }
+        int chunks = threads == 1 ? Math.min(size, 1) : (int) Math.min(size, (long) threads * CHUNKS_PER_THREAD);
+        List<Range> result = new ArrayList<>(chunks);
+        if (chunks == 0) {
+            return result;
+        }
+        int partSize = size / chunks;
+        int restNum = size % chunks;
+        for (int i = 0; i < chunks; i++) {
+            int from = i * partSize + Math.min(i, restNum);
+            int to = from + partSize + (i < restNum ? 1 : 0);
+            result.add(new Range(i, from, to));
         }
         return result;
     }
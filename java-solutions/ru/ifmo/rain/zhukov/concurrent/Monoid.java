@@ -0,0 +1,50 @@
+package ru.ifmo.rain.zhukov.concurrent;
+
+import java.util.Objects;
+import java.util.function.BinaryOperator;
+
+/**
+ * Associative operation with identity, used by {@link IterativeParallelism#mapReduce}.
+ * Partitions are reduced independently and their results are combined in order,
+ * so {@link #combine} must be associative, but need not be commutative.
+ *
+ * @param <R> type of values.
+ */
+public interface Monoid<R> {
+    /**
+     * Returns identity of {@link #combine}. May be returned once per partition, so it should be immutable.
+     */
+    R identity();
+
+    /**
+     * Combines two values associatively.
+     *
+     * @param left  left value.
+     * @param right right value.
+     * @return combination of values.
+     */
+    R combine(R left, R right);
+
+    /**
+     * Creates monoid from identity and associative operation.
+     *
+     * @param identity identity of the operation.
+     * @param op       associative operation.
+     * @param <R>      type of values.
+     * @return monoid.
+     */
+    static <R> Monoid<R> of(R identity, BinaryOperator<R> op) {
+        Objects.requireNonNull(op);
+        return new Monoid<>() {
+            @Override
+            public R identity() {
+                return identity;
+            }
+
+            @Override
+            public R combine(R left, R right) {
+                return op.apply(left, right);
+            }
+        };
+    }
+}
@@ -1,49 +1,140 @@
 package ru.ifmo.rain.zhukov.concurrent;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 
 /**
  * Parallel result collector for {@link ParallelMapperImpl}
  * Allows to collect the result of mapping.
+ * Results are written straight into a preallocated array by several tasks,
+ * each of them reports its completion once. Completions are lock-free, and the single
+ * thread waiting in {@link #get()} is parked until the last one.
+ * Asynchronous collector also completes its {@link #future()}, exceptionally on the first failure.
  */
-public class ParallelCollector<R> {
-    private final ArrayList<R> result;
-    private int numCompleted = 0;
+public class ParallelCollector<R> implements ChunkSink<R> {
+    private final Object[] result;
+    private final AtomicInteger remaining;
+    private final AtomicReference<Throwable> error = new AtomicReference<>();
+    private final CompletableFuture<List<R>> future;
+    private volatile Thread waiter = null;
 
 
     /**
-     * @param size size of list to collect.
+     * @param size  size of list to collect.
+     * @param tasks number of tasks filling the list.
      */
-    public ParallelCollector(int size) {
-        result = new ArrayList<>();
-        for (int i = 0; i < size; i++) {
-            result.add(null);
+    public ParallelCollector(int size, int tasks) {
+        this(size, tasks, false);
+    }
+
+    /**
+     * @param size  size of list to collect.
+     * @param tasks number of tasks filling the list.
+     * @param async whether to complete {@link #future()}.
+     */
+    public ParallelCollector(int size, int tasks, boolean async) {
+        result = new Object[size];
+        remaining = new AtomicInteger(tasks);
+        future = async ? new CompletableFuture<>() : null;
+        if (async && tasks == 0) {
+            future.complete(list());
+        }
+    }
+
+    /**
+     * Set element at given index. Must be followed by {@link #complete()} of the setting task.
+     */
+    @Override
+    public void set(int index, R value) {
+        result[index] = value;
+    }
+
+    /**
+     * Reports completion of one task.
+     */
+    @Override
+    public void complete() {
+        if (remaining.decrementAndGet() == 0) {
+            Thread thread = waiter;
+            if (thread != null) {
+                LockSupport.unpark(thread);
+            }
+            if (future != null && error.get() == null) {
+                future.complete(list());
+            }
         }
     }
 
     /**
-     * Set element at given index.
+     * Reports failure of one task. The first reported exception is rethrown by {@link #get()},
+     * later ones are added to it as suppressed.
+     *
+     * @param e task failure.
      */
-    synchronized public void set(int index, R value) {
-        result.set(index, value);
-        numCompleted++;
-        if (numCompleted == result.size()) {
-            notifyAll();
+    @Override
+    public void fail(Throwable e) {
+        try {
+            if (error.compareAndSet(null, e)) {
+                if (future != null) {
+                    future.completeExceptionally(e);
+                }
+            } else if (error.get() != e) {
+                error.get().addSuppressed(e);
+            }
+        } finally {
+            complete();
         }
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isCancelled() {
+        return future != null && future.isDone();
+    }
 
     /**
-     * Get the collected result.
+     * Future of the collected result, {@code null} for synchronous collector.
+     *
+     * @return result future.
+     */
+    public CompletableFuture<List<R>> future() {
+        return future;
+    }
+
+
+    /**
+     * Get the collected result. Must be called by one thread only.
      *
      * @return parallel collected result.
      */
-    synchronized public List<R> get() throws InterruptedException {
-        while (numCompleted < result.size()) {
-            wait();
+    public List<R> get() throws InterruptedException {
+        waiter = Thread.currentThread();
+        while (remaining.get() > 0) {
+            LockSupport.park(this);
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
         }
-        return result;
+        Throwable e = error.get();
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        } else if (e instanceof Error) {
+            throw (Error) e;
+        } else if (e != null) {
+            throw new IllegalStateException(e);
+        }
+        return list();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<R> list() {
+        return Arrays.asList((R[]) result);
     }
 }
@@ -1,15 +1,37 @@
 package ru.ifmo.rain.zhukov.concurrent;
 
 import info.kgeorgiy.java.advanced.mapper.ParallelMapper;
+import ru.ifmo.rain.zhukov.metrics.StatisticsMXBeans;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
 
 /**
  * Implementation of {@link ParallelMapper} interface using {@link QueueSolver}.
+ * Arguments are mapped in contiguous chunks, one task per chunk. Chunk size is derived from
+ * the number of threads and the per-element cost measured by previous chunks.
+ * Statistics of the underlying {@link QueueSolver} are available from {@link #statistics()}
+ * and, on request, in the platform MBean server, see {@link #registerStatistics()}.
+ * Bounded mapper keeps at most given number of chunk tasks queued, see {@link QueueSolver.Policy}.
  */
 public class ParallelMapperImpl implements ParallelMapper {
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final long TARGET_CHUNK_NANOS = 200_000;
+    private static final double COST_SMOOTHING = 0.25;
+
     QueueSolver queueSolver;
+    private final int threads;
+    private volatile double elementNanos = 0;
+    private ObjectName statisticsName = null;
 
     /**
      * Creates parallel mapper with given number of threads.
@@ -17,27 +39,277 @@ public class ParallelMapperImpl implements ParallelMapper {
      * @param threads required number of threads.
      */
     public ParallelMapperImpl(int threads) {
-        queueSolver = new QueueSolver(threads);
+        this(threads, Thread::new);
+    }
+
+    /**
+     * Creates parallel mapper with given number of threads created by given factory.
+     *
+     * @param threads       required number of threads.
+     * @param threadFactory factory of worker threads.
+     */
+    public ParallelMapperImpl(int threads, ThreadFactory threadFactory) {
+        this(threads, threadFactory, Integer.MAX_VALUE, QueueSolver.Policy.BLOCK);
+    }
+
+    /**
+     * Creates bounded parallel mapper with given number of threads.
+     *
+     * @param threads  required number of threads.
+     * @param capacity maximal number of queued chunk tasks of all calls.
+     * @param policy   handling of chunk tasks beyond capacity.
+     */
+    public ParallelMapperImpl(int threads, int capacity, QueueSolver.Policy policy) {
+        this(threads, Thread::new, capacity, policy);
+    }
+
+    /**
+     * Creates bounded parallel mapper with given number of threads created by given factory.
+     *
+     * @param threads       required number of threads.
+     * @param threadFactory factory of worker threads.
+     * @param capacity      maximal number of queued chunk tasks of all calls.
+     * @param policy        handling of chunk tasks beyond capacity.
+     */
+    public ParallelMapperImpl(int threads, ThreadFactory threadFactory, int capacity, QueueSolver.Policy policy) {
+        queueSolver = new QueueSolver(threads, threadFactory, capacity, policy);
+        this.threads = threads;
+    }
+
+    /**
+     * Creates parallel mapper running on virtual threads.
+     * Suits blocking mapping functions: {@code concurrency} may be much larger than the number of processors.
+     *
+     * @param concurrency maximal number of concurrently mapped chunks.
+     * @return virtual thread parallel mapper.
+     * @throws UnsupportedOperationException if running JVM does not support virtual threads.
+     */
+    public static ParallelMapperImpl withVirtualThreads(int concurrency) {
+        return new ParallelMapperImpl(concurrency, VirtualThreads.factory());
     }
 
     /**
      * {@inheritDoc}
+     *
+     * @throws RejectedExecutionException if bounded mapper is full and rejects tasks.
      */
     @Override
     public <T, R> List<R> map(Function<? super T, ? extends R> f, List<? extends T> args) throws InterruptedException {
-        ParallelCollector<R> collector = new ParallelCollector<>(args.size());
-        for (int i = 0; i < args.size(); i++) {
-            int index = i;
-            queueSolver.add(() -> collector.set(index, f.apply(args.get(index))));
+        List<? extends T> values = randomAccess(args);
+        int chunk = chunkSize(values.size());
+        ParallelCollector<R> collector = new ParallelCollector<>(values.size(), chunks(values.size(), chunk));
+        try {
+            submit(f, values, chunk, collector);
+        } catch (RejectedExecutionException e) {
+            if (e.getCause() instanceof InterruptedException) {
+                Thread.interrupted();
+                throw (InterruptedException) e.getCause();
+            }
+            throw e;
         }
         return collector.get();
     }
 
+    /**
+     * Maps function over specified arguments without waiting for the result.
+     * Cancelling the returned future removes not yet started tasks and stops running ones.
+     * The future completes exceptionally with the first exception thrown by the function,
+     * or with {@link RejectedExecutionException} if bounded mapper is full and rejects tasks.
+     * Bounded mapper with {@link QueueSolver.Policy#BLOCK} policy may block the caller until its tasks are queued.
+     *
+     * @param f    function to apply.
+     * @param args arguments.
+     * @param <T>  type of arguments.
+     * @param <R>  type of results.
+     * @return future of the list of results, in order of arguments.
+     */
+    public <T, R> CompletableFuture<List<R>> mapAsync(Function<? super T, ? extends R> f, List<? extends T> args) {
+        List<? extends T> values = randomAccess(args);
+        int chunk = chunkSize(values.size());
+        ParallelCollector<R> collector = new ParallelCollector<>(values.size(), chunks(values.size(), chunk), true);
+        try {
+            return cancellable(collector.future(), submit(f, values, chunk, collector));
+        } catch (RejectedExecutionException e) {
+            return collector.future();
+        }
+    }
+
+    /**
+     * Maps function over specified arguments, delivering every result as soon as it is computed.
+     * The consumer is called concurrently from worker threads with the index of the argument and the result.
+     * Cancelling the returned future removes not yet started tasks and stops running ones.
+     *
+     * @param f        function to apply.
+     * @param args     arguments.
+     * @param consumer receiver of results.
+     * @param <T>      type of arguments.
+     * @param <R>      type of results.
+     * @return future completed when all results are delivered, or exceptionally on the first exception.
+     */
+    public <T, R> CompletableFuture<Void> mapStreaming(Function<? super T, ? extends R> f, List<? extends T> args,
+                                                      BiConsumer<Integer, ? super R> consumer) {
+        List<? extends T> values = randomAccess(args);
+        int chunk = chunkSize(values.size());
+        StreamingSink<R> sink = new StreamingSink<>(consumer, chunks(values.size(), chunk));
+        try {
+            return cancellable(sink.future, submit(f, values, chunk, sink));
+        } catch (RejectedExecutionException e) {
+            return sink.future;
+        }
+    }
+
+    private static class StreamingSink<R> implements ChunkSink<R> {
+        private final BiConsumer<Integer, ? super R> consumer;
+        private final AtomicInteger remaining;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        StreamingSink(BiConsumer<Integer, ? super R> consumer, int tasks) {
+            this.consumer = consumer;
+            this.remaining = new AtomicInteger(tasks);
+            if (tasks == 0) {
+                future.complete(null);
+            }
+        }
+
+        @Override
+        public void set(int index, R value) {
+            consumer.accept(index, value);
+        }
+
+        @Override
+        public void complete() {
+            if (remaining.decrementAndGet() == 0) {
+                future.complete(null);
+            }
+        }
+
+        @Override
+        public void fail(Throwable e) {
+            try {
+                future.completeExceptionally(e);
+            } finally {
+                complete();
+            }
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return future.isDone();
+        }
+    }
+
+    private <F> CompletableFuture<F> cancellable(CompletableFuture<F> future, List<Runnable> tasks) {
+        future.whenComplete((result, e) -> {
+            if (e != null) {
+                queueSolver.removeAll(tasks);
+            }
+        });
+        return future;
+    }
+
+    private static <T> List<? extends T> randomAccess(List<? extends T> args) {
+        return args instanceof RandomAccess ? args : new ArrayList<>(args);
+    }
+
+    private static int chunks(int size, int chunk) {
+        return (size + chunk - 1) / chunk;
+    }
+
+    /**
+     * Enqueues one task per chunk of arguments.
+     * If a task is rejected, fails the sink and removes already queued tasks.
+     *
+     * @return enqueued tasks.
+     * @throws RejectedExecutionException if a task is rejected.
+     */
+    private <T, R> List<Runnable> submit(Function<? super T, ? extends R> f, List<? extends T> values,
+                                         int chunk, ChunkSink<R> sink) {
+        int size = values.size();
+        List<Runnable> tasks = new ArrayList<>(chunks(size, chunk));
+        for (int from = 0; from < size; from += chunk) {
+            int lo = from;
+            int hi = Math.min(from + chunk, size);
+            Runnable task = () -> {
+                long start = System.nanoTime();
+                try {
+                    for (int i = lo; i < hi && !sink.isCancelled(); i++) {
+                        sink.set(i, f.apply(values.get(i)));
+                    }
+                } catch (Throwable e) {
+                    sink.fail(e);
+                    return;
+                }
+                if (!sink.isCancelled()) {
+                    updateCost(System.nanoTime() - start, hi - lo);
+                }
+                sink.complete();
+            };
+            tasks.add(task);
+            try {
+                queueSolver.add(task);
+            } catch (RejectedExecutionException e) {
+                sink.fail(e);
+                queueSolver.removeAll(tasks);
+                throw e;
+            }
+        }
+        return tasks;
+    }
+
+    /**
+     * Chooses number of elements per task: enough to run for about {@link #TARGET_CHUNK_NANOS}
+     * at the measured cost, but no more than an even share of a thread.
+     */
+    private int chunkSize(int size) {
+        int maxChunk = Math.max(1, (size + threads - 1) / threads);
+        double cost = elementNanos;
+        if (cost <= 0) {
+            return Math.max(1, (size + threads * CHUNKS_PER_THREAD - 1) / (threads * CHUNKS_PER_THREAD));
+        }
+        return (int) Math.max(1, Math.min(maxChunk, TARGET_CHUNK_NANOS / cost));
+    }
+
+    private void updateCost(long nanos, int elements) {
+        double cost = (double) nanos / elements;
+        double previous = elementNanos;
+        elementNanos = previous <= 0 ? cost : previous + COST_SMOOTHING * (cost - previous);
+    }
+
+    /**
+     * Returns live statistics of queued tasks and workers of this mapper.
+     * Statistics are collected from the first call of this method or {@link #registerStatistics()} on.
+     *
+     * @return statistics of this mapper.
+     */
+    public QueueStatisticsMXBean statistics() {
+        return queueSolver.statistics();
+    }
+
+    /**
+     * Registers {@link #statistics()} in the platform MBean server until {@link #close()}.
+     * Repeated calls return the name of the first registration.
+     *
+     * @return registered name.
+     * @throws JMException if registration fails.
+     */
+    public synchronized ObjectName registerStatistics() throws JMException {
+        if (statisticsName == null) {
+            statisticsName = StatisticsMXBeans.register(queueSolver.statistics());
+        }
+        return statisticsName;
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public void close() {
         queueSolver.close();
+        synchronized (this) {
+            if (statisticsName != null) {
+                StatisticsMXBeans.unregister(statisticsName);
+                statisticsName = null;
+            }
+        }
     }
 }
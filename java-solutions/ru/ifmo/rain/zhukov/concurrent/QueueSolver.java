@@ -1,40 +1,177 @@
 package ru.ifmo.rain.zhukov.concurrent;
 
-import java.util.ArrayList;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Objects;
 import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
 
 /**
  * Parallel solver for {@link ParallelMapperImpl}.
  * Queues given tasks ans solves them parallel.
+ * Every worker owns a lock-free deque of tasks and steals from other workers when its own deque is empty.
+ * Idle workers park and each added task wakes at most one of them.
+ * Worker threads are created by a {@link ThreadFactory}, so they may be virtual.
+ * Queue depth, waiting and running times of tasks and busy time of workers are collected in {@link #statistics()}
+ * from its first call on, so a solver nobody monitors takes no timestamps and touches no shared counters.
+ * Bounded solver keeps at most given number of tasks queued and applies {@link Policy} to tasks added beyond it.
+ * Waiting callers are admitted in arrival order, one task at a time, so a caller adding many tasks
+ * does not starve concurrent callers adding few.
  */
 public class QueueSolver {
+    private static final ThreadLocal<Worker> currentWorker = new ThreadLocal<>();
+
+    /**
+     * Handling of tasks added to a full bounded solver.
+     * Workers adding tasks to a full solver always run them themselves, as blocking could deadlock the solver.
+     */
+    public enum Policy {
+        /**
+         * Wait until a queued task is started or removed.
+         */
+        BLOCK,
+        /**
+         * Run task in the adding thread.
+         */
+        CALLER_RUNS,
+        /**
+         * Throw {@link RejectedExecutionException}.
+         */
+        REJECT
+    }
+
+    /**
+     * Queued task with statistics it is counted in and its enqueueing time.
+     * Either a worker or {@link #removeAll} claims the task, so it is counted exactly once.
+     */
+    private static class Task {
+        final Runnable runnable;
+        final QueueStatistics statistics;
+        final long enqueuedNanos;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+
+        Task(Runnable runnable, QueueStatistics statistics) {
+            this.runnable = runnable;
+            this.statistics = statistics;
+            enqueuedNanos = statistics == null ? 0 : System.nanoTime();
+        }
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+
     /**
-     * Task-solving thread.
+     * Task-solving loop of one worker thread.
      */
-    private class Worker extends Thread {
+    private class Worker implements Runnable {
+        private final ConcurrentLinkedDeque<Task> tasks = new ConcurrentLinkedDeque<>();
+        private final AtomicBoolean idle = new AtomicBoolean();
+        private final int index;
+        private Thread thread;
+
+        Worker(int index) {
+            this.index = index;
+        }
+
+        /**
+         * Returns solver owning this worker, {@link #currentWorker} is shared by all solvers.
+         */
+        QueueSolver solver() {
+            return QueueSolver.this;
+        }
+
         @Override
         public void run() {
-            try {
-                while (!Thread.interrupted()) {
-                    Runnable task;
-                    synchronized (tasks) {
-                        while (tasks.isEmpty()) {
-                            tasks.wait();
-                        }
-                        task = tasks.poll();
+            currentWorker.set(this);
+            while (!Thread.interrupted()) {
+                Task task = next();
+                if (task == null) {
+                    if (idle.compareAndSet(false, true)) {
+                        idleWorkers.add(this);
+                    }
+                    task = next();
+                    if (task == null) {
+                        LockSupport.park(this);
+                        continue;
                     }
-                    task.run();
+                    idle.set(false);
+                }
+                long start = task.statistics == null ? 0 : System.nanoTime();
+                boolean success = false;
+                try {
+                    task.runnable.run();
+                    success = true;
+                } catch (RuntimeException e) {
+                    thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+                } finally {
+                    if (task.statistics != null) {
+                        task.statistics.ran(index, task.enqueuedNanos, start, System.nanoTime(), success);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Takes task, skipping removed ones.
+         */
+        private Task next() {
+            Task task;
+            while ((task = poll()) != null) {
+                if (task.claim()) {
+                    dequeued(task);
+                    return task;
                 }
-            } catch (InterruptedException ignored) {
             }
+            return null;
+        }
+
+        /**
+         * Takes task from own deque or steals one from other worker.
+         */
+        private Task poll() {
+            Task task = tasks.pollFirst();
+            if (task != null) {
+                return task;
+            }
+            int start = ThreadLocalRandom.current().nextInt(workers.length);
+            for (int i = 0; i < workers.length; i++) {
+                Worker victim = workers[(start + i) % workers.length];
+                if (victim != this && (task = victim.tasks.pollLast()) != null) {
+                    return task;
+                }
+            }
+            return null;
+        }
+
+        private boolean wake() {
+            if (idle.compareAndSet(true, false)) {
+                LockSupport.unpark(thread);
+                return true;
+            }
+            return false;
         }
     }
 
-    private final List<Worker> workers = new ArrayList<>();
-    private final Queue<Runnable> tasks = new LinkedList<>();
+    private final Worker[] workers;
+    private final Queue<Worker> idleWorkers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger nextWorker = new AtomicInteger();
+    private volatile QueueStatistics statistics;
+    private final int maxQueued;
+    private final Semaphore capacity;
+    private final Policy policy;
 
     /**
      * Creates solver with given number of threads.
@@ -42,26 +179,168 @@ public class QueueSolver {
      * @param threads required number of threads.
      */
     public QueueSolver(int threads) {
+        this(threads, Thread::new);
+    }
+
+    /**
+     * Creates solver with given number of threads created by given factory.
+     *
+     * @param threads       required number of threads.
+     * @param threadFactory factory of worker threads.
+     */
+    public QueueSolver(int threads, ThreadFactory threadFactory) {
+        this(threads, threadFactory, Integer.MAX_VALUE, Policy.BLOCK);
+    }
+
+    /**
+     * Creates bounded solver with given number of threads created by given factory.
+     *
+     * @param threads       required number of threads.
+     * @param threadFactory factory of worker threads.
+     * @param capacity      maximal number of queued tasks, {@link Integer#MAX_VALUE} for unbounded solver.
+     * @param policy        handling of tasks added to a full solver.
+     */
+    public QueueSolver(int threads, ThreadFactory threadFactory, int capacity, Policy policy) {
         if (threads <= 0) {
             throw new IllegalArgumentException("Number of threads must be positive");
         }
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity == Integer.MAX_VALUE ? null : new Semaphore(capacity, true);
+        this.policy = Objects.requireNonNull(policy);
+        maxQueued = capacity;
+        workers = new Worker[threads];
         for (int i = 0; i < threads; i++) {
-            Worker worker = new Worker();
-            workers.add(worker);
-            worker.start();
+            workers[i] = new Worker(i);
+            workers[i].thread = threadFactory.newThread(workers[i]);
+        }
+        for (Worker worker : workers) {
+            worker.thread.start();
         }
     }
 
     /**
      * Enqueue task.
+     * Tasks added by a worker go to its own deque, other tasks are spread among workers round-robin.
+     * When bounded solver is full, the task is handled by its {@link Policy}.
      *
      * @param task {@link Runnable} task to execute;
+     * @throws RejectedExecutionException if the solver is full and rejects tasks,
+     *                                    or the caller was interrupted while waiting.
      */
     public void add(Runnable task) {
-        synchronized (tasks) {
-            tasks.add(task);
-            tasks.notifyAll();
+        Worker target = currentWorker.get();
+        boolean fromWorker = target != null && target.solver() == this;
+        QueueStatistics statistics = this.statistics;
+        if (!admit(fromWorker, statistics)) {
+            if (statistics != null) {
+                statistics.callerRan();
+            }
+            task.run();
+            return;
+        }
+        if (!fromWorker) {
+            target = workers[Math.floorMod(nextWorker.getAndIncrement(), workers.length)];
+        }
+        if (statistics != null) {
+            statistics.enqueued();
+        }
+        target.tasks.addLast(new Task(task, statistics));
+        Worker worker;
+        while ((worker = idleWorkers.poll()) != null) {
+            if (worker.wake()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Takes place for a task in bounded solver.
+     *
+     * @param fromWorker whether task is added by a worker.
+     * @param statistics statistics to count rejected task in, if collected.
+     * @return whether task may be queued, otherwise the caller runs it.
+     */
+    private boolean admit(boolean fromWorker, QueueStatistics statistics) {
+        if (capacity == null) {
+            return true;
+        }
+        try {
+            if (capacity.tryAcquire(0, TimeUnit.NANOSECONDS)) {
+                return true;
+            }
+            if (fromWorker) {
+                return false;
+            }
+            switch (policy) {
+                case BLOCK:
+                    capacity.acquire();
+                    return true;
+                case CALLER_RUNS:
+                    return false;
+                default:
+                    if (statistics != null) {
+                        statistics.rejected();
+                    }
+                    throw new RejectedExecutionException("Queue is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for queue capacity", e);
+        }
+    }
+
+    private void dequeued(Task task) {
+        if (task.statistics != null) {
+            task.statistics.dequeued();
+        }
+        if (capacity != null) {
+            capacity.release();
+        }
+    }
+
+    /**
+     * Removes given tasks if they have not been started yet.
+     *
+     * @param tasks tasks to remove.
+     */
+    public void removeAll(Collection<? extends Runnable> tasks) {
+        Set<Runnable> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        removed.addAll(tasks);
+        for (Worker w : workers) {
+            w.tasks.removeIf(task -> {
+                if (removed.contains(task.runnable) && task.claim()) {
+                    if (task.statistics != null) {
+                        task.statistics.removed();
+                    }
+                    if (capacity != null) {
+                        capacity.release();
+                    }
+                    return true;
+                }
+                return false;
+            });
+        }
+    }
+
+    /**
+     * Returns live statistics of this solver, starting their collection on the first call.
+     * Tasks queued before the first call are not counted.
+     *
+     * @return statistics of this solver.
+     */
+    QueueStatistics statistics() {
+        QueueStatistics result = statistics;
+        if (result == null) {
+            synchronized (this) {
+                result = statistics;
+                if (result == null) {
+                    statistics = result = new QueueStatistics(workers.length, maxQueued);
+                }
+            }
         }
+        return result;
     }
 
     /**
@@ -69,11 +348,11 @@ public class QueueSolver {
      */
     public void close() {
         for (Worker w : workers) {
-            w.interrupt();
+            w.thread.interrupt();
         }
         for (Worker w : workers) {
             try {
-                w.join();
+                w.thread.join();
             } catch (InterruptedException ignored) {
             }
         }
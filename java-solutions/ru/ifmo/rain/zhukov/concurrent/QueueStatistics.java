@@ -0,0 +1,155 @@
+package ru.ifmo.rain.zhukov.concurrent;
+
+import ru.ifmo.rain.zhukov.metrics.LatencyHistogram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and timings of a {@link QueueSolver}. Safe for concurrent use.
+ * Wait latency is measured from enqueueing a task to its start, busy time of a worker is the sum
+ * of run times of its tasks, busy ratio relates it to the time since collection started.
+ * Busy times of workers are kept a cache line apart, as every worker updates its own one after each task.
+ */
+class QueueStatistics implements QueueStatisticsMXBean {
+    private static final int BUSY_STRIDE = 16;
+
+    final LatencyHistogram wait = new LatencyHistogram();
+    final LatencyHistogram run = new LatencyHistogram();
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder removed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder callerRan = new LongAdder();
+    private final int capacity;
+    private final AtomicInteger depth = new AtomicInteger();
+    private final LongAccumulator maxDepth = new LongAccumulator(Math::max, 0);
+    private final int threads;
+    private final AtomicLongArray busy;
+    private final long startNanos = System.nanoTime();
+
+    QueueStatistics(int threads, int capacity) {
+        this.threads = threads;
+        busy = new AtomicLongArray(threads * BUSY_STRIDE);
+        this.capacity = capacity;
+    }
+
+    void enqueued() {
+        submitted.increment();
+        maxDepth.accumulate(depth.incrementAndGet());
+    }
+
+    void dequeued() {
+        depth.decrementAndGet();
+    }
+
+    void removed() {
+        removed.increment();
+        depth.decrementAndGet();
+    }
+
+    void rejected() {
+        rejected.increment();
+    }
+
+    void callerRan() {
+        callerRan.increment();
+    }
+
+    void ran(int worker, long enqueuedNanos, long startNanos, long endNanos, boolean success) {
+        wait.record(startNanos - enqueuedNanos);
+        run.record(endNanos - startNanos);
+        busy.addAndGet(worker * BUSY_STRIDE, endNanos - startNanos);
+        (success ? completed : failed).increment();
+    }
+
+    @Override
+    public int getThreads() {
+        return threads;
+    }
+
+    @Override
+    public int getCapacity() {
+        return capacity;
+    }
+
+    @Override
+    public long getSubmittedTasks() {
+        return submitted.sum();
+    }
+
+    @Override
+    public long getCompletedTasks() {
+        return completed.sum();
+    }
+
+    @Override
+    public long getFailedTasks() {
+        return failed.sum();
+    }
+
+    @Override
+    public long getRemovedTasks() {
+        return removed.sum();
+    }
+
+    @Override
+    public long getRejectedTasks() {
+        return rejected.sum();
+    }
+
+    @Override
+    public long getCallerRanTasks() {
+        return callerRan.sum();
+    }
+
+    @Override
+    public int getQueueDepth() {
+        return Math.max(depth.get(), 0);
+    }
+
+    @Override
+    public int getMaxQueueDepth() {
+        return (int) maxDepth.get();
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getWaitLatency() {
+        return wait.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getRunLatency() {
+        return run.snapshot();
+    }
+
+    @Override
+    public long[] getWorkerBusyNanos() {
+        long[] result = new long[threads];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = busy.get(i * BUSY_STRIDE);
+        }
+        return result;
+    }
+
+    @Override
+    public double[] getWorkerBusyRatios() {
+        long elapsed = Math.max(System.nanoTime() - startNanos, 1);
+        long[] busyNanos = getWorkerBusyNanos();
+        double[] result = new double[busyNanos.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = Math.min(1.0, (double) busyNanos[i] / elapsed);
+        }
+        return result;
+    }
+}
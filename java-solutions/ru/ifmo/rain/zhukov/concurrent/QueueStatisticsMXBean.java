@@ -0,0 +1,85 @@
+package ru.ifmo.rain.zhukov.concurrent;
+
+import ru.ifmo.rain.zhukov.metrics.LatencyHistogram;
+
+/**
+ * JMX view of {@link QueueSolver} statistics.
+ * Counters cover the whole lifetime of the solver, tasks run by callers of a full bounded solver are
+ * counted by {@link #getCallerRanTasks()} only.
+ */
+public interface QueueStatisticsMXBean {
+    /**
+     * Returns number of worker threads.
+     */
+    int getThreads();
+
+    /**
+     * Returns maximal number of queued tasks, {@link Integer#MAX_VALUE} for unbounded solver.
+     */
+    int getCapacity();
+
+    /**
+     * Returns number of tasks ever queued.
+     */
+    long getSubmittedTasks();
+
+    /**
+     * Returns number of queued tasks that finished normally.
+     */
+    long getCompletedTasks();
+
+    /**
+     * Returns number of queued tasks that threw an exception.
+     */
+    long getFailedTasks();
+
+    /**
+     * Returns number of queued tasks removed before start.
+     */
+    long getRemovedTasks();
+
+    /**
+     * Returns number of tasks rejected by a full bounded solver.
+     */
+    long getRejectedTasks();
+
+    /**
+     * Returns number of tasks run by their callers because bounded solver was full.
+     */
+    long getCallerRanTasks();
+
+    /**
+     * Returns number of tasks queued and not yet started.
+     */
+    int getQueueDepth();
+
+    /**
+     * Returns maximal number of tasks queued at once.
+     */
+    int getMaxQueueDepth();
+
+    /**
+     * Returns time since the solver was created.
+     */
+    long getElapsedMillis();
+
+    /**
+     * Returns distribution of times from queueing of tasks to their start.
+     */
+    LatencyHistogram.Snapshot getWaitLatency();
+
+    /**
+     * Returns distribution of running times of tasks.
+     */
+    LatencyHistogram.Snapshot getRunLatency();
+
+    /**
+     * Returns total running time of tasks of every worker.
+     */
+    long[] getWorkerBusyNanos();
+
+    /**
+     * Returns fraction of lifetime of the solver every worker spent running tasks.
+     */
+    double[] getWorkerBusyRatios();
+}
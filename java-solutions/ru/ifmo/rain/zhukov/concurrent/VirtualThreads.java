@@ -0,0 +1,45 @@
+package ru.ifmo.rain.zhukov.concurrent;
+
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Access to virtual threads of Java 21 and later without compile-time dependency on them.
+ */
+public final class VirtualThreads {
+    private static final ThreadFactory FACTORY = lookupFactory();
+
+    private VirtualThreads() {
+    }
+
+    private static ThreadFactory lookupFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (NoSuchMethodException | ClassNotFoundException | IllegalAccessException | InvocationTargetException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Tells whether running JVM supports virtual threads.
+     *
+     * @return {@code true} if virtual threads are available.
+     */
+    public static boolean isSupported() {
+        return FACTORY != null;
+    }
+
+    /**
+     * Returns factory of virtual threads.
+     *
+     * @return virtual thread factory.
+     * @throws UnsupportedOperationException if running JVM does not support virtual threads.
+     */
+    public static ThreadFactory factory() {
+        if (FACTORY == null) {
+            throw new UnsupportedOperationException("Virtual threads are not supported by this JVM");
+        }
+        return FACTORY;
+    }
+}
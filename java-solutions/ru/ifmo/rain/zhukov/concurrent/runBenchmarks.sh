@@ -0,0 +1,14 @@
+#!/bin/bash
+
+WD="$( cd "$( dirname "${BASH_SOURCE[0]}" )" >/dev/null 2>&1 && pwd)"
+
+ROOT=${WD}/../../../../../
+LIB=${JMH_LIB:-${ROOT}/../java-advanced-2020/lib/jmh}
+REQ=${ROOT}/../java-advanced-2020/artifacts
+OUT=${WD}/_build/benchmarks/concurrent
+
+rm -rf ${OUT}
+
+javac -implicit:class -cp "${LIB}/*:${REQ}/*:${ROOT}" -d ${OUT} ${WD}/ConcurrentBenchmark.java
+
+java -cp "${LIB}/*:${REQ}/*:${OUT}" org.openjdk.jmh.Main "ru.ifmo.rain.zhukov.concurrent.ConcurrentBenchmark" -prof gc $@
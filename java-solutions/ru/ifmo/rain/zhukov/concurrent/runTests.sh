@@ -0,0 +1,14 @@
+#!/bin/bash
+
+WD="$( cd "$( dirname "${BASH_SOURCE[0]}" )" >/dev/null 2>&1 && pwd)"
+
+ROOT=${WD}/../../../../../
+LIB=${WD}/../bank/junit-platform-console-standalone-1.7.0-M1.jar
+REQ=${ROOT}/../java-advanced-2020/artifacts
+OUT=${WD}/_build/production/concurrent
+
+rm -rf ${OUT}
+
+javac -implicit:class -cp "${ROOT}:${LIB}:${REQ}/*" -d ${OUT} ${WD}/ConcurrentTest.java
+
+java -cp "${LIB}:${REQ}/*:${OUT}" org.junit.runner.JUnitCore ru.ifmo.rain.zhukov.concurrent.ConcurrentTest
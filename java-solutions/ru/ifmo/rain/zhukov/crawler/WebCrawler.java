@@ -1,22 +1,30 @@
 package ru.ifmo.rain.zhukov.crawler;
 
 import info.kgeorgiy.java.advanced.crawler.*;
+import ru.ifmo.rain.zhukov.concurrent.VirtualThreads;
 
 import java.io.IOException;
 import java.net.MalformedURLException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Implementation of {@link Crawler} interface using Concurrency Utilities.
+ * Every host has a queue admitting at most {@code perHost} concurrent downloads. Downloads beyond the limit
+ * wait in the queue and each finished download submits the next one, so downloaders never block on a busy host.
+ * Crawler {@link #withVirtualThreads created with virtual threads} downloads every page on its own virtual thread,
+ * so downloads of slow hosts hold no platform threads.
  */
 public class WebCrawler implements Crawler {
     private final Downloader downloader;
     private final int perHost;
     private final ExecutorService downloaders;
     private final ExecutorService extractors;
-    private final ConcurrentMap<String, Semaphore> hostSemaphores = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, HostQueue> hostQueues = new ConcurrentHashMap<>();
 
     /**
      * Creates WebCrawler with given {@link Downloader} and required limits of downloads, extractors and connections per host .
@@ -27,73 +35,153 @@ public class WebCrawler implements Crawler {
      * @param perHost     maximal number of connections per host threads.
      */
     public WebCrawler(Downloader downloader, int downloaders, int extractors, int perHost) {
+        this(downloader, Executors.newFixedThreadPool(downloaders), extractors, perHost);
+    }
+
+    private WebCrawler(Downloader downloader, ExecutorService downloaders, int extractors, int perHost) {
         this.downloader = downloader;
-        this.downloaders = Executors.newFixedThreadPool(downloaders);
+        this.downloaders = downloaders;
         this.extractors = Executors.newFixedThreadPool(extractors);
         this.perHost = perHost;
     }
 
+    /**
+     * Creates WebCrawler downloading on virtual threads.
+     * Number of concurrent downloads is limited by {@code perHost} only.
+     *
+     * @param downloader Documents downloader.
+     * @param extractors maximal number of extracting threads.
+     * @param perHost    maximal number of connections per host threads.
+     * @return virtual thread WebCrawler.
+     * @throws UnsupportedOperationException if running JVM does not support virtual threads.
+     */
+    public static WebCrawler withVirtualThreads(Downloader downloader, int extractors, int perHost) {
+        return new WebCrawler(downloader, Executors.newCachedThreadPool(VirtualThreads.factory()), extractors, perHost);
+    }
+
     /**
      * {@inheritDoc}
      */
     @Override
     public Result download(String url, int depth) {
-        Set<String> downloaded = ConcurrentHashMap.newKeySet();
-        ConcurrentMap<String, IOException> errors = new ConcurrentHashMap<>();
-        Phaser phaser = new Phaser(2);
-        Set<String> visited = ConcurrentHashMap.newKeySet();
-        visited.add(url);
-        downloaders.submit(new DownloadJob(url, depth, downloaded, errors, phaser, visited));
-        phaser.arriveAndAwaitAdvance();
-        return new Result(new ArrayList<>(downloaded), errors);
+        Crawl crawl = new Crawl();
+        crawl.visited.add(url);
+        crawl.register();
+        submitDownload(url, depth, crawl);
+        crawl.done.join();
+        return new Result(new ArrayList<>(crawl.downloaded), crawl.errors);
+    }
+
+    /**
+     * State of one {@link #download} call.
+     * Counts unfinished jobs and completes {@link #done} when the last of them finishes,
+     * so the number of pending pages is not limited as with parties of a {@link Phaser}.
+     */
+    private static class Crawl {
+        final Set<String> downloaded = ConcurrentHashMap.newKeySet();
+        final ConcurrentMap<String, IOException> errors = new ConcurrentHashMap<>();
+        final Set<String> visited = ConcurrentHashMap.newKeySet();
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final AtomicInteger pending = new AtomicInteger();
+
+        void register() {
+            pending.incrementAndGet();
+        }
+
+        void arrive() {
+            if (pending.decrementAndGet() == 0) {
+                done.complete(null);
+            }
+        }
+    }
+
+    /**
+     * Queues download of registered page to its host.
+     */
+    private void submitDownload(String url, int depth, Crawl crawl) {
+        String host;
+        try {
+            host = URLUtils.getHost(url);
+        } catch (MalformedURLException e) {
+            crawl.errors.put(url, e);
+            crawl.arrive();
+            return;
+        }
+        hostQueues.computeIfAbsent(host, h -> new HostQueue()).add(new DownloadJob(url, depth, crawl));
+    }
+
+    /**
+     * Downloads of one host, at most {@link #perHost} of them are submitted to {@link #downloaders} at a time.
+     */
+    private class HostQueue {
+        private final Queue<Runnable> waiting = new ArrayDeque<>();
+        private int running = 0;
+
+        void add(Runnable job) {
+            synchronized (this) {
+                if (running == perHost) {
+                    waiting.add(job);
+                    return;
+                }
+                running++;
+            }
+            submit(job);
+        }
+
+        private void submit(Runnable job) {
+            downloaders.submit(() -> {
+                try {
+                    job.run();
+                } finally {
+                    finished();
+                }
+            });
+        }
+
+        private void finished() {
+            Runnable next;
+            synchronized (this) {
+                next = waiting.poll();
+                if (next == null) {
+                    running--;
+                    return;
+                }
+            }
+            submit(next);
+        }
     }
 
     private abstract static class CrawlJob implements Runnable {
         protected final int depth;
-        protected final Set<String> downloaded;
-        protected final ConcurrentMap<String, IOException> errors;
-        protected final Phaser phaser;
-        protected final Set<String> visited;
+        protected final Crawl crawl;
 
-        CrawlJob(int depth, Set<String> downloaded, ConcurrentMap<String, IOException> errors, Phaser phaser, Set<String> visited) {
+        CrawlJob(int depth, Crawl crawl) {
             this.depth = depth;
-            this.downloaded = downloaded;
-            this.errors = errors;
-            this.phaser = phaser;
-            this.visited = visited;
+            this.crawl = crawl;
         }
     }
 
     private class DownloadJob extends CrawlJob {
         private final String url;
 
-        DownloadJob(String url, int depth, Set<String> downloaded, ConcurrentMap<String, IOException> errors, Phaser phaser, Set<String> visited) {
-            super(depth, downloaded, errors, phaser, visited);
+        DownloadJob(String url, int depth, Crawl crawl) {
+            super(depth, crawl);
             this.url = url;
         }
 
         @Override
         public void run() {
             try {
-                String host = URLUtils.getHost(url);
-                Semaphore hostSemaphore = hostSemaphores.computeIfAbsent(host, h -> new Semaphore(perHost));
-                try {
-                    hostSemaphore.acquireUninterruptibly();
-                    Document document = downloader.download(url);
-                    downloaded.add(url);
-                    if (depth > 1) {
-                        phaser.register();
-                        extractors.submit(new ExtractJob(document, depth - 1, downloaded, errors, phaser, visited));
-                    }
-                } catch (IOException e) {
-                    errors.put(url, e);
-                } finally {
-                    hostSemaphore.release();
+                Document document = downloader.download(url);
+                crawl.downloaded.add(url);
+                if (depth > 1) {
+                    crawl.register();
+                    extractors.submit(new ExtractJob(document, depth - 1, crawl));
                 }
-            } catch (MalformedURLException e) {
-                errors.put(url, e);
+            } catch (IOException e) {
+                crawl.errors.put(url, e);
             } finally {
-                phaser.arrive();
+                crawl.arrive();
             }
         }
     }
@@ -101,8 +189,8 @@ public class WebCrawler implements Crawler {
     private class ExtractJob extends CrawlJob {
         private final Document document;
 
-        ExtractJob(Document document, int depth, Set<String> downloaded, ConcurrentMap<String, IOException> errors, Phaser phaser, Set<String> visited) {
-            super(depth, downloaded, errors, phaser, visited);
+        ExtractJob(Document document, int depth, Crawl crawl) {
+            super(depth, crawl);
             this.document = document;
         }
 
@@ -110,14 +198,14 @@ public class WebCrawler implements Crawler {
         public void run() {
             try {
                 for (String url : document.extractLinks()) {
-                    if (visited.add(url)) {
-                        phaser.register();
-                        downloaders.submit(new DownloadJob(url, depth, downloaded, errors, phaser, visited));
+                    if (crawl.visited.add(url)) {
+                        crawl.register();
+                        submitDownload(url, depth, crawl);
                     }
                 }
             } catch (IOException ignored) {
             } finally {
-                phaser.arrive();
+                crawl.arrive();
             }
         }
     }
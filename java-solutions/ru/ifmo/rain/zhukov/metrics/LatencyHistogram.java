@@ -0,0 +1,138 @@
+package ru.ifmo.rain.zhukov.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrent histogram of durations with power-of-two nanosecond buckets.
+ * Percentiles are reported as upper bounds of their buckets.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = Long.SIZE;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * Records duration.
+     *
+     * @param nanos duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        long value = Math.max(nanos, 0);
+        counts.incrementAndGet(Long.SIZE - 1 - Long.numberOfLeadingZeros(value | 1));
+        total.add(value);
+        max.accumulate(value);
+    }
+
+    /**
+     * Records duration since given {@link System#nanoTime()} value.
+     *
+     * @param startNanos start of measured interval.
+     * @return current {@link System#nanoTime()} value.
+     */
+    public long recordSince(long startNanos) {
+        long now = System.nanoTime();
+        record(now - startNanos);
+        return now;
+    }
+
+    /**
+     * Returns consistent enough view of recorded durations.
+     *
+     * @return histogram snapshot.
+     */
+    public Snapshot snapshot() {
+        long[] snapshot = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        long maxNanos = max.get();
+        return new Snapshot(count, total.sum(),
+                percentile(snapshot, count, 0.5, maxNanos),
+                percentile(snapshot, count, 0.9, maxNanos),
+                percentile(snapshot, count, 0.99, maxNanos),
+                maxNanos);
+    }
+
+    private static long percentile(long[] counts, long count, double fraction, long maxNanos) {
+        long rank = (long) Math.ceil(count * fraction);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank && seen > 0) {
+                return i == BUCKETS - 1 ? maxNanos : Math.min((2L << i) - 1, maxNanos);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Immutable summary of {@link LatencyHistogram}. Usable as MXBean attribute type.
+     */
+    public static class Snapshot {
+        private final long count;
+        private final long totalNanos;
+        private final long p50Nanos;
+        private final long p90Nanos;
+        private final long p99Nanos;
+        private final long maxNanos;
+
+        Snapshot(long count, long totalNanos, long p50Nanos, long p90Nanos, long p99Nanos, long maxNanos) {
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.p50Nanos = p50Nanos;
+            this.p90Nanos = p90Nanos;
+            this.p99Nanos = p99Nanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMeanNanos() {
+            return count == 0 ? 0 : totalNanos / count;
+        }
+
+        public long getP50Nanos() {
+            return p50Nanos;
+        }
+
+        public long getP90Nanos() {
+            return p90Nanos;
+        }
+
+        public long getP99Nanos() {
+            return p99Nanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("n=%d mean=%s p50=%s p99=%s max=%s", count,
+                    format(getMeanNanos()), format(p50Nanos), format(p99Nanos), format(maxNanos));
+        }
+
+        private static String format(long nanos) {
+            if (nanos < TimeUnit.MICROSECONDS.toNanos(10)) {
+                return nanos + "ns";
+            } else if (nanos < TimeUnit.MILLISECONDS.toNanos(10)) {
+                return TimeUnit.NANOSECONDS.toMicros(nanos) + "us";
+            }
+            return TimeUnit.NANOSECONDS.toMillis(nanos) + "ms";
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ru.ifmo.rain.zhukov.metrics;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Registration of statistics MXBeans in the platform MBean server.
+ */
+public final class StatisticsMXBeans {
+    private static final AtomicInteger ids = new AtomicInteger();
+
+    private StatisticsMXBeans() {
+    }
+
+    /**
+     * Registers statistics in platform MBean server under unique name
+     * {@code <package>:type=<simple class name>,id=<number>} of their class.
+     *
+     * @param statistics MXBean to register.
+     * @return registered name.
+     * @throws JMException if registration fails.
+     */
+    public static ObjectName register(Object statistics) throws JMException {
+        Class<?> type = statistics.getClass();
+        ObjectName name = new ObjectName(type.getPackageName() + ":type=" + type.getSimpleName()
+                + ",id=" + ids.incrementAndGet());
+        ManagementFactory.getPlatformMBeanServer().registerMBean(statistics, name);
+        return name;
+    }
+
+    /**
+     * Unregisters statistics from platform MBean server, reporting failure on {@link System#err}.
+     *
+     * @param name registered name.
+     */
+    public static void unregister(ObjectName name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            System.err.println("Statistics MXBean unregistration error: " + e.getMessage());
+        }
+    }
+}
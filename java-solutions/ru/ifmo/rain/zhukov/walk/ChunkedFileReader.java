@@ -0,0 +1,87 @@
+package ru.ifmo.rain.zhukov.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+
+/**
+ * Reads files chunk by chunk, choosing I/O strategy by file size.
+ * Tiny files are read into a reused heap buffer, medium files through a reused direct buffer,
+ * and large files are memory-mapped. Buffers are reused between calls, so an instance
+ * must be confined to one thread.
+ * Read time of a file excludes the consumer: only channel reads are timed, and for mapped files,
+ * whose pages are read while the consumer touches them, only mapping is.
+ */
+class ChunkedFileReader {
+    static final int TINY_FILE_SIZE = 8 * 1024;
+    static final long LARGE_FILE_SIZE = 64L * 1024 * 1024;
+    static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+    private static final long MAPPED_SEGMENT_SIZE = 256L * 1024 * 1024;
+
+    private final ByteBuffer heapBuffer = ByteBuffer.allocate(TINY_FILE_SIZE);
+    private final ByteBuffer directBuffer;
+    private final WalkStatistics statistics;
+    private long readNanos;
+
+    ChunkedFileReader(WalkStatistics statistics) {
+        this(DEFAULT_BUFFER_SIZE, statistics);
+    }
+
+    ChunkedFileReader(int bufferSize, WalkStatistics statistics) {
+        this.directBuffer = ByteBuffer.allocateDirect(bufferSize);
+        this.statistics = statistics;
+    }
+
+    /**
+     * Passes contents of the file to {@code consumer} in order, one flipped buffer per chunk.
+     * Buffers are only valid until the consumer returns.
+     *
+     * @return number of bytes read.
+     */
+    long read(Path file, Consumer<ByteBuffer> consumer) throws IOException {
+        long start = System.nanoTime();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            statistics.open.recordSince(start);
+            readNanos = 0;
+            long size = channel.size();
+            long read;
+            if (size >= LARGE_FILE_SIZE) {
+                read = readMapped(channel, size, consumer);
+            } else {
+                read = readBuffered(channel, size < TINY_FILE_SIZE ? heapBuffer : directBuffer, consumer);
+            }
+            statistics.read.record(readNanos);
+            statistics.bytesHashed(read);
+            return read;
+        }
+    }
+
+    private long readBuffered(FileChannel channel, ByteBuffer buffer, Consumer<ByteBuffer> consumer) throws IOException {
+        long total = 0;
+        while (true) {
+            buffer.clear();
+            long start = System.nanoTime();
+            int count = channel.read(buffer);
+            readNanos += System.nanoTime() - start;
+            if (count < 0) {
+                return total;
+            }
+            buffer.flip();
+            total += buffer.remaining();
+            consumer.accept(buffer);
+        }
+    }
+
+    private long readMapped(FileChannel channel, long size, Consumer<ByteBuffer> consumer) throws IOException {
+        for (long position = 0; position < size; position += MAPPED_SEGMENT_SIZE) {
+            long start = System.nanoTime();
+            ByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(MAPPED_SEGMENT_SIZE, size - position));
+            readNanos += System.nanoTime() - start;
+            consumer.accept(segment);
+        }
+        return size;
+    }
+}
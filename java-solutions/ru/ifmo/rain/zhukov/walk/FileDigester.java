@@ -0,0 +1,40 @@
+package ru.ifmo.rain.zhukov.walk;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * Computes file hashes with a reused {@link ChunkedFileReader} and {@link FileHasher},
+ * consulting optional {@link HashCache} first. An instance must be confined to one thread.
+ */
+class FileDigester {
+    private final ChunkedFileReader reader;
+    private final FileHasher hasher;
+    private final HashCache cache;
+    private final WalkStatistics statistics;
+
+    FileDigester(HashAlgorithm algorithm, HashCache cache, WalkStatistics statistics) {
+        this.reader = new ChunkedFileReader(statistics);
+        this.hasher = algorithm.create();
+        this.cache = cache;
+        this.statistics = statistics;
+    }
+
+    byte[] digest(Path file, BasicFileAttributes attrs) throws IOException {
+        if (cache != null) {
+            byte[] hash = cache.get(file, attrs);
+            if (hash != null) {
+                statistics.cacheHit();
+                return hash;
+            }
+        }
+        hasher.reset();
+        reader.read(file, hasher::update);
+        byte[] hash = hasher.digest();
+        if (cache != null) {
+            cache.put(file, attrs, hash);
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,26 @@
+package ru.ifmo.rain.zhukov.walk;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Incremental hash function over file contents.
+ * Implementations keep mutable state, so an instance must be confined to one thread.
+ */
+interface FileHasher {
+    /**
+     * Starts a new hash computation.
+     */
+    void reset();
+
+    /**
+     * Feeds remaining bytes of the buffer to the hash. Buffer position is not changed.
+     */
+    void update(ByteBuffer buffer);
+
+    /**
+     * Finishes hash computation.
+     *
+     * @return hash value as big-endian bytes.
+     */
+    byte[] digest();
+}
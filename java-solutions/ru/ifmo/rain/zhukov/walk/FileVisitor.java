@@ -1,10 +1,7 @@
 package ru.ifmo.rain.zhukov.walk;
 
-import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.InputStream;
 import java.nio.file.FileVisitResult;
-import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
 import java.nio.file.attribute.BasicFileAttributes;
@@ -12,35 +9,57 @@ import java.nio.file.attribute.BasicFileAttributes;
 import static java.nio.file.FileVisitResult.CONTINUE;
 
 public class FileVisitor extends SimpleFileVisitor<Path> {
-    BufferedWriter writer;
+    HashWriter writer;
+    private final boolean flushOnError;
+    private final byte[] failedHash;
+    private final FileDigester digester;
+    final WalkStatistics statistics;
 
-    FileVisitor(BufferedWriter writer) {
+    FileVisitor(HashWriter writer, WalkSettings settings, HashCache cache, WalkStatistics statistics) {
         this.writer = writer;
+        this.flushOnError = settings.flushOnError;
+        this.failedHash = new byte[settings.algorithm.length()];
+        this.digester = new FileDigester(settings.algorithm, cache, statistics);
+        this.statistics = statistics;
+    }
+
+    @Override
+    public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+        statistics.enterDirectory(dir);
+        return CONTINUE;
     }
 
     @Override
     public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-        InputStream input = Files.newInputStream(file);
-        byte[] buffer = new byte[1024];
-        int bytesRead;
-        int hash = 0x811c9dc5;
-        int p = 0x01000193;
-
-        while ((bytesRead = input.read(buffer)) >= 0) {
-            for (int i = 0; i < bytesRead; i++) {
-                hash = (hash * p) ^ (buffer[i] & 0xff);
-            }
+        statistics.fileVisited();
+        byte[] hash;
+        try {
+            hash = digester.digest(file, attrs);
+        } catch (IOException e) {
+            return visitFileFailed(file, e);
         }
-        writer.write(String.format("%08x", hash) + " " + file.toString());
-        writer.newLine();
-        return FileVisitResult.CONTINUE;
+        writeHash(hash, file.toString());
+        return CONTINUE;
     }
 
     @Override
     public FileVisitResult visitFileFailed(Path file, IOException exc) throws IOException {
-        writer.write(String.format("%08x", 0) + " " + file);
-        writer.newLine();
-        writer.flush();
+        writeFailed(file.toString());
         return CONTINUE;
     }
+
+    void writeFailed(String file) throws IOException {
+        statistics.failed();
+        writeHash(failedHash, file);
+        if (flushOnError) {
+            writer.flush();
+        }
+    }
+
+    void writeHash(byte[] hash, String file) throws IOException {
+        writer.write(hash, file);
+    }
+
+    void finish() throws IOException {
+    }
 }
@@ -0,0 +1,39 @@
+package ru.ifmo.rain.zhukov.walk;
+
+import java.nio.ByteBuffer;
+
+/**
+ * 32-bit FNV hash, the default {@link RecursiveWalk} hash.
+ */
+class Fnv32Hasher implements FileHasher {
+    private static final int OFFSET_BASIS = 0x811c9dc5;
+    private static final int P = 0x01000193;
+
+    private int hash = OFFSET_BASIS;
+
+    @Override
+    public void reset() {
+        hash = OFFSET_BASIS;
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        int h = hash;
+        if (buffer.hasArray()) {
+            byte[] array = buffer.array();
+            for (int i = buffer.arrayOffset() + buffer.position(), end = buffer.arrayOffset() + buffer.limit(); i < end; i++) {
+                h = (h * P) ^ (array[i] & 0xff);
+            }
+        } else {
+            for (int i = buffer.position(), end = buffer.limit(); i < end; i++) {
+                h = (h * P) ^ (buffer.get(i) & 0xff);
+            }
+        }
+        hash = h;
+    }
+
+    @Override
+    public byte[] digest() {
+        return new byte[]{(byte) (hash >>> 24), (byte) (hash >>> 16), (byte) (hash >>> 8), (byte) hash};
+    }
+}
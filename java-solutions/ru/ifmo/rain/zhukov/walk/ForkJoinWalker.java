@@ -0,0 +1,193 @@
+package ru.ifmo.rain.zhukov.walk;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import static java.nio.file.FileVisitResult.CONTINUE;
+import static java.nio.file.FileVisitResult.TERMINATE;
+
+/**
+ * Replacement for {@link Files#walkFileTree(Path, java.nio.file.FileVisitor)} that lists directories
+ * concurrently on a {@link ForkJoinPool}. Visitor is called on the calling thread in the same order
+ * and with the same error reporting as {@code walkFileTree}: links are not followed, unreadable
+ * entries and directories are passed to {@code visitFileFailed} and directory iteration errors to
+ * {@code postVisitDirectory}.
+ * Only the next few subdirectories of every directory on the current path are listed ahead, and
+ * entries are dropped once visited, so memory grows with the depth of the tree rather than its size.
+ */
+class ForkJoinWalker implements AutoCloseable {
+    private static class Entry {
+        final Path path;
+        final BasicFileAttributes attrs;
+        final IOException error;
+        final ListTask listing;
+
+        Entry(Path path, BasicFileAttributes attrs, IOException error, ListTask listing) {
+            this.path = path;
+            this.attrs = attrs;
+            this.error = error;
+            this.listing = listing;
+        }
+    }
+
+    private static class Listing {
+        final List<Entry> entries = new ArrayList<>();
+        IOException openError;
+        IOException iterationError;
+    }
+
+    @SuppressWarnings("serial")
+    private static class ListTask extends RecursiveTask<Listing> {
+        private final Path dir;
+        private final WalkStatistics statistics;
+        private boolean submitted = false;
+
+        ListTask(Path dir, WalkStatistics statistics) {
+            this.dir = dir;
+            this.statistics = statistics;
+        }
+
+        @Override
+        protected Listing compute() {
+            long start = System.nanoTime();
+            try {
+                return list();
+            } finally {
+                statistics.list.recordSince(start);
+            }
+        }
+
+        private Listing list() {
+            Listing listing = new Listing();
+            DirectoryStream<Path> stream;
+            try {
+                stream = Files.newDirectoryStream(dir);
+            } catch (IOException e) {
+                listing.openError = e;
+                return listing;
+            }
+            try (stream) {
+                for (Path child : stream) {
+                    listing.entries.add(entry(child, statistics));
+                }
+            } catch (DirectoryIteratorException e) {
+                listing.iterationError = e.getCause();
+            } catch (IOException e) {
+                listing.iterationError = e;
+            }
+            return listing;
+        }
+    }
+
+    private static class Frame {
+        final Path dir;
+        final List<Entry> entries;
+        final IOException iterationError;
+        int next = 0;
+        int submitted = 0;
+
+        Frame(Path dir, Listing listing) {
+            this.dir = dir;
+            this.entries = listing.entries;
+            this.iterationError = listing.iterationError;
+        }
+    }
+
+    /**
+     * Number of entries following the current one in every directory whose listings are submitted ahead.
+     */
+    private static final int LOOKAHEAD_PER_THREAD = 4;
+
+    private final ForkJoinPool pool;
+    private final WalkStatistics statistics;
+    private final int lookahead;
+
+    ForkJoinWalker(int parallelism, WalkStatistics statistics) {
+        this.pool = new ForkJoinPool(parallelism);
+        this.statistics = statistics;
+        this.lookahead = LOOKAHEAD_PER_THREAD * parallelism;
+    }
+
+    private static Entry entry(Path path, WalkStatistics statistics) {
+        BasicFileAttributes attrs;
+        try {
+            attrs = Files.readAttributes(path, BasicFileAttributes.class, LinkOption.NOFOLLOW_LINKS);
+        } catch (IOException e) {
+            return new Entry(path, null, e, null);
+        }
+        return new Entry(path, attrs, null, attrs.isDirectory() ? new ListTask(path, statistics) : null);
+    }
+
+    private void submit(ListTask listing) {
+        if (listing != null && !listing.submitted) {
+            listing.submitted = true;
+            pool.execute(listing);
+        }
+    }
+
+    /**
+     * Submits listings of subdirectories among the next {@link #lookahead} entries of the frame.
+     */
+    private void submitAhead(Frame frame) {
+        int end = Math.min(frame.entries.size(), frame.next + lookahead);
+        for (frame.submitted = Math.max(frame.submitted, frame.next); frame.submitted < end; frame.submitted++) {
+            submit(frame.entries.get(frame.submitted).listing);
+        }
+    }
+
+    void walk(Path start, java.nio.file.FileVisitor<? super Path> visitor) throws IOException {
+        Deque<Frame> stack = new ArrayDeque<>();
+        if (visit(entry(start, statistics), visitor, stack) == TERMINATE) {
+            return;
+        }
+        while (!stack.isEmpty()) {
+            Frame frame = stack.peek();
+            submitAhead(frame);
+            if (frame.next == frame.entries.size()) {
+                stack.pop();
+                if (visitor.postVisitDirectory(frame.dir, frame.iterationError) == TERMINATE) {
+                    return;
+                }
+                continue;
+            }
+            Entry entry = frame.entries.set(frame.next++, null);
+            FileVisitResult result = visit(entry, visitor, stack);
+            if (result == TERMINATE) {
+                return;
+            } else if (result == FileVisitResult.SKIP_SIBLINGS) {
+                frame.next = frame.entries.size();
+            }
+        }
+    }
+
+    private FileVisitResult visit(Entry entry, java.nio.file.FileVisitor<? super Path> visitor, Deque<Frame> stack) throws IOException {
+        if (entry.error != null) {
+            return visitor.visitFileFailed(entry.path, entry.error);
+        }
+        if (entry.listing == null) {
+            return visitor.visitFile(entry.path, entry.attrs);
+        }
+        submit(entry.listing);
+        Listing listing = entry.listing.join();
+        if (listing.openError != null) {
+            return visitor.visitFileFailed(entry.path, listing.openError);
+        }
+        FileVisitResult result = visitor.preVisitDirectory(entry.path, entry.attrs);
+        if (result == CONTINUE) {
+            stack.push(new Frame(entry.path, listing));
+        }
+        return result == FileVisitResult.SKIP_SUBTREE ? CONTINUE : result;
+    }
+
+    @Override
+    public void close() {
+        pool.shutdownNow();
+    }
+}
@@ -0,0 +1,57 @@
+package ru.ifmo.rain.zhukov.walk;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.function.Supplier;
+
+/**
+ * Hash functions supported by {@link RecursiveWalk}.
+ */
+enum HashAlgorithm {
+    FNV("fnv", 4, Fnv32Hasher::new),
+    XXHASH64("xxhash64", 8, XxHash64Hasher::new),
+    SHA256("sha256", 32, () -> messageDigest("SHA-256"));
+
+    private final String name;
+    private final int length;
+    private final Supplier<FileHasher> factory;
+
+    HashAlgorithm(String name, int length, Supplier<FileHasher> factory) {
+        this.name = name;
+        this.length = length;
+        this.factory = factory;
+    }
+
+    /**
+     * @return length of hash value in bytes.
+     */
+    int length() {
+        return length;
+    }
+
+    FileHasher create() {
+        return factory.get();
+    }
+
+    static HashAlgorithm forName(String name) {
+        for (HashAlgorithm algorithm : values()) {
+            if (algorithm.name.equalsIgnoreCase(name)) {
+                return algorithm;
+            }
+        }
+        throw new IllegalArgumentException("Unknown hash algorithm: " + name);
+    }
+
+    private static FileHasher messageDigest(String algorithm) {
+        try {
+            return new MessageDigestHasher(MessageDigest.getInstance(algorithm));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Hash algorithm is not available: " + algorithm, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
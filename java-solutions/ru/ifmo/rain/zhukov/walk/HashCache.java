@@ -0,0 +1,143 @@
+package ru.ifmo.rain.zhukov.walk;
+
+import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistent cache of file hashes keyed by path, size, last modification time and file key.
+ * Entries that were not looked up or stored since loading are dropped on {@link #save()}.
+ * Safe for concurrent use.
+ */
+class HashCache {
+    private static final int MAGIC = 0x57414c4b;
+    private static final int VERSION = 1;
+
+    private static class Entry {
+        final long size;
+        final long modified;
+        final String fileKey;
+        final byte[] hash;
+
+        Entry(long size, long modified, String fileKey, byte[] hash) {
+            this.size = size;
+            this.modified = modified;
+            this.fileKey = fileKey;
+            this.hash = hash;
+        }
+
+        Entry(BasicFileAttributes attrs, byte[] hash) {
+            this(attrs.size(), attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS), fileKey(attrs), hash);
+        }
+
+        boolean matches(BasicFileAttributes attrs) {
+            return size == attrs.size()
+                    && modified == attrs.lastModifiedTime().to(TimeUnit.NANOSECONDS)
+                    && fileKey.equals(fileKey(attrs));
+        }
+
+        private static String fileKey(BasicFileAttributes attrs) {
+            return Objects.toString(attrs.fileKey(), "");
+        }
+    }
+
+    private final Path cacheFile;
+    private final HashAlgorithm algorithm;
+    private final Map<String, Entry> loaded = new ConcurrentHashMap<>();
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+    private HashCache(Path cacheFile, HashAlgorithm algorithm) {
+        this.cacheFile = cacheFile;
+        this.algorithm = algorithm;
+    }
+
+    /**
+     * Loads cache from file. Missing, corrupted or computed with other algorithm cache is treated as empty.
+     */
+    static HashCache load(Path cacheFile, HashAlgorithm algorithm) {
+        HashCache cache = new HashCache(cacheFile, algorithm);
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(cacheFile)))) {
+            if (input.readInt() != MAGIC || input.readInt() != VERSION || !input.readUTF().equals(algorithm.toString())) {
+                return cache;
+            }
+            int count = input.readInt();
+            for (int i = 0; i < count; i++) {
+                String path = input.readUTF();
+                long size = input.readLong();
+                long modified = input.readLong();
+                String fileKey = input.readUTF();
+                byte[] hash = new byte[algorithm.length()];
+                input.readFully(hash);
+                cache.loaded.put(path, new Entry(size, modified, fileKey, hash));
+            }
+        } catch (IOException e) {
+            cache.loaded.clear();
+        }
+        return cache;
+    }
+
+    /**
+     * Returns cached hash of the file if its attributes did not change.
+     *
+     * @return cached hash or {@code null}.
+     */
+    byte[] get(Path file, BasicFileAttributes attrs) {
+        if (!cacheable(attrs)) {
+            return null;
+        }
+        String key = key(file);
+        Entry entry = loaded.get(key);
+        if (entry == null || !entry.matches(attrs)) {
+            return null;
+        }
+        current.put(key, entry);
+        return Arrays.copyOf(entry.hash, entry.hash.length);
+    }
+
+    void put(Path file, BasicFileAttributes attrs, byte[] hash) {
+        if (cacheable(attrs)) {
+            current.put(key(file), new Entry(attrs, hash));
+        }
+    }
+
+    /**
+     * Rewrites cache file with entries used since loading.
+     */
+    void save() throws IOException {
+        Path parent = cacheFile.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, cacheFile.getFileName().toString(), ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                output.writeInt(MAGIC);
+                output.writeInt(VERSION);
+                output.writeUTF(algorithm.toString());
+                Map<String, Entry> entries = Map.copyOf(current);
+                output.writeInt(entries.size());
+                for (Map.Entry<String, Entry> e : entries.entrySet()) {
+                    Entry entry = e.getValue();
+                    output.writeUTF(e.getKey());
+                    output.writeLong(entry.size);
+                    output.writeLong(entry.modified);
+                    output.writeUTF(entry.fileKey);
+                    output.write(entry.hash);
+                }
+            }
+            Files.move(temp, cacheFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    private static boolean cacheable(BasicFileAttributes attrs) {
+        return attrs != null && attrs.isRegularFile();
+    }
+
+    private static String key(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+}
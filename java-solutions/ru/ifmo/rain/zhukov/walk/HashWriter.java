@@ -0,0 +1,87 @@
+package ru.ifmo.rain.zhukov.walk;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writer of {@code hash path} lines. Encodes hash digits and paths straight into a large
+ * reused buffer and writes it to a {@link FileChannel} when full.
+ * Must be used from one thread.
+ */
+class HashWriter implements AutoCloseable {
+    static final int DEFAULT_BUFFER_SIZE = 256 * 1024;
+    private static final byte[] HEX_DIGITS = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final WalkStatistics statistics;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    HashWriter(FileChannel channel, int bufferSize, WalkStatistics statistics) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.statistics = statistics;
+    }
+
+    static HashWriter open(Path file, WalkStatistics statistics) throws IOException {
+        return new HashWriter(FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE),
+                DEFAULT_BUFFER_SIZE, statistics);
+    }
+
+    void write(byte[] hash, CharSequence file) throws IOException {
+        if (buffer.remaining() < 2 * hash.length + 1) {
+            flush();
+        }
+        for (byte b : hash) {
+            buffer.put(HEX_DIGITS[(b >>> 4) & 0xf]).put(HEX_DIGITS[b & 0xf]);
+        }
+        buffer.put((byte) ' ');
+
+        CharBuffer chars = CharBuffer.wrap(file);
+        encoder.reset();
+        while (encoder.encode(chars, buffer, true).isOverflow()) {
+            flush();
+        }
+        while (encoder.flush(buffer).isOverflow()) {
+            flush();
+        }
+
+        if (buffer.remaining() < LINE_SEPARATOR.length) {
+            flush();
+        }
+        buffer.put(LINE_SEPARATOR);
+    }
+
+    /**
+     * Writes buffered lines to the channel.
+     */
+    void flush() throws IOException {
+        long start = System.nanoTime();
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        statistics.write.recordSince(start);
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
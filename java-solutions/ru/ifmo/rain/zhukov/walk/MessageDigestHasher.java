@@ -0,0 +1,30 @@
+package ru.ifmo.rain.zhukov.walk;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+
+/**
+ * {@link FileHasher} adapter for {@link MessageDigest}.
+ */
+class MessageDigestHasher implements FileHasher {
+    private final MessageDigest digest;
+
+    MessageDigestHasher(MessageDigest digest) {
+        this.digest = digest;
+    }
+
+    @Override
+    public void reset() {
+        digest.reset();
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        digest.update(buffer.duplicate());
+    }
+
+    @Override
+    public byte[] digest() {
+        return digest.digest();
+    }
+}
@@ -0,0 +1,102 @@
+package ru.ifmo.rain.zhukov.walk;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.nio.file.FileVisitResult.CONTINUE;
+
+/**
+ * {@link FileVisitor} that walks the tree on the calling thread and hashes files on a worker pool.
+ * Lines are written in walk order.
+ */
+public class ParallelFileVisitor extends FileVisitor implements AutoCloseable {
+    private static final int PENDING_PER_THREAD = 64;
+
+    private static class Pending {
+        final Future<byte[]> hash;
+        final String file;
+
+        Pending(Future<byte[]> hash, String file) {
+            this.hash = hash;
+            this.file = file;
+        }
+    }
+
+    private final ExecutorService workers;
+    private final ThreadLocal<FileDigester> digesters;
+    private final Deque<Pending> pending = new ArrayDeque<>();
+    private final int maxPending;
+
+    ParallelFileVisitor(HashWriter writer, WalkSettings settings, HashCache cache, WalkStatistics statistics) {
+        super(writer, settings, cache, statistics);
+        int threads = settings.threads;
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Number of threads must be positive");
+        }
+        workers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task);
+            thread.setDaemon(true);
+            return thread;
+        });
+        maxPending = threads * PENDING_PER_THREAD;
+        digesters = ThreadLocal.withInitial(() -> new FileDigester(settings.algorithm, cache, statistics));
+    }
+
+    @Override
+    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+        statistics.fileVisited();
+        pending.add(new Pending(workers.submit(() -> digesters.get().digest(file, attrs)), file.toString()));
+        drain(false);
+        return CONTINUE;
+    }
+
+    @Override
+    void writeFailed(String file) throws IOException {
+        if (pending.isEmpty()) {
+            super.writeFailed(file);
+        } else {
+            pending.add(new Pending(null, file));
+        }
+    }
+
+    @Override
+    void finish() throws IOException {
+        drain(true);
+    }
+
+    private void drain(boolean all) throws IOException {
+        while (!pending.isEmpty()) {
+            Pending head = pending.peek();
+            if (!all && pending.size() <= maxPending && head.hash != null && !head.hash.isDone()) {
+                return;
+            }
+            pending.poll();
+            if (head.hash == null) {
+                super.writeFailed(head.file);
+                continue;
+            }
+            try {
+                writeHash(head.hash.get(), head.file);
+            } catch (ExecutionException e) {
+                super.writeFailed(head.file);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Hashing interrupted");
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+}
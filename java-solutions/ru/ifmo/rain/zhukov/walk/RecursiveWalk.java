@@ -1,32 +1,74 @@
 package ru.ifmo.rain.zhukov.walk;
 
+import ru.ifmo.rain.zhukov.metrics.StatisticsMXBeans;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 public class RecursiveWalk {
     static void walk(Path inputPath, Path outputPath) throws Exception {
+        walk(inputPath, outputPath, new WalkSettings());
+    }
+
+    static void walk(Path inputPath, Path outputPath, WalkSettings settings) throws Exception {
+        WalkStatistics statistics = new WalkStatistics();
+        ObjectName name = null;
+        if (settings.registerStatistics) {
+            try {
+                name = StatisticsMXBeans.register(statistics);
+            } catch (JMException e) {
+                throw new Exception("Statistics MXBean registration error: " + e.getMessage());
+            }
+        }
+        ScheduledExecutorService reporter = null;
+        if (settings.progressSeconds > 0) {
+            reporter = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task);
+                thread.setDaemon(true);
+                return thread;
+            });
+            reporter.scheduleAtFixedRate(() -> System.err.println(statistics.report()),
+                    settings.progressSeconds, settings.progressSeconds, TimeUnit.SECONDS);
+        }
+        try {
+            walk(inputPath, outputPath, settings, statistics);
+        } finally {
+            if (reporter != null) {
+                reporter.shutdownNow();
+                System.err.println(statistics.report());
+            }
+            if (name != null) {
+                StatisticsMXBeans.unregister(name);
+            }
+        }
+    }
+
+    private static void walk(Path inputPath, Path outputPath, WalkSettings settings, WalkStatistics statistics) throws Exception {
+        HashCache cache = settings.cache == null ? null : HashCache.load(settings.cache, settings.algorithm);
         try (BufferedReader reader = Files.newBufferedReader(inputPath)) {
-            try (BufferedWriter writer = Files.newBufferedWriter(outputPath)) {
-                String file;
-                FileVisitor fileVisitor = new FileVisitor(writer);
+            try (HashWriter writer = HashWriter.open(outputPath, statistics)) {
+                FileVisitor fileVisitor = settings.threads > 1
+                        ? new ParallelFileVisitor(writer, settings, cache, statistics)
+                        : new FileVisitor(writer, settings, cache, statistics);
+                ForkJoinWalker walker = settings.listThreads > 1 ? new ForkJoinWalker(settings.listThreads, statistics) : null;
                 try {
-                    while ((file = reader.readLine()) != null) {
-                        try {
-                            Path path = Paths.get(file);
-                            Files.walkFileTree(path, fileVisitor);
-                        } catch (InvalidPathException | IOException e) {
-                            writer.write(String.format("%08x", 0) + " " + file);
-                            writer.newLine();
-                            writer.flush();
-                        }
+                    walk(reader, fileVisitor, walker);
+                } finally {
+                    if (walker != null) {
+                        walker.close();
+                    }
+                    if (fileVisitor instanceof ParallelFileVisitor) {
+                        ((ParallelFileVisitor) fileVisitor).close();
                     }
-                } catch (IOException e) {
-                    throw new Exception("Input file reading error: " + e.getMessage());
                 }
             } catch (IOException e) {
                 throw new Exception("Writer creation error: " + e.getMessage());
@@ -34,22 +76,120 @@ public class RecursiveWalk {
         } catch (IOException e) {
             throw new Exception("Reader creation error: " + e.getMessage());
         }
+        if (cache != null) {
+            try {
+                cache.save();
+            } catch (IOException e) {
+                throw new Exception("Cache writing error: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void walk(BufferedReader reader, FileVisitor fileVisitor, ForkJoinWalker walker) throws Exception {
+        String file;
+        try {
+            while ((file = reader.readLine()) != null) {
+                try {
+                    Path path = Paths.get(file);
+                    if (walker != null) {
+                        walker.walk(path, fileVisitor);
+                    } else {
+                        Files.walkFileTree(path, fileVisitor);
+                    }
+                } catch (InvalidPathException | IOException e) {
+                    fileVisitor.writeFailed(file);
+                }
+            }
+        } catch (IOException e) {
+            throw new Exception("Input file reading error: " + e.getMessage());
+        }
+        try {
+            fileVisitor.finish();
+        } catch (IOException e) {
+            throw new Exception("Output writing error: " + e.getMessage());
+        }
+    }
+
+    private static String optionValue(String[] args, int index) throws Exception {
+        if (index >= args.length || args[index] == null) {
+            throw new Exception("Missing value of " + args[index - 1]);
+        }
+        return args[index];
     }
 
     public static void main(String[] args) {
         try {
             Path inputPath;
             Path outputPath;
-            if (args == null || args.length != 2 || args[0] == null || args[1] == null) {
+            WalkSettings settings = new WalkSettings();
+            if (args == null) {
+                throw new Exception("Wrong arguments");
+            }
+            int arg = 0;
+            while (arg < args.length && args[arg] != null && args[arg].startsWith("--")) {
+                String option = args[arg++];
+                switch (option) {
+                    case "--threads":
+                        try {
+                            settings.threads = Integer.parseInt(optionValue(args, arg++));
+                        } catch (NumberFormatException e) {
+                            throw new Exception("Wrong number of threads: " + e.getMessage());
+                        }
+                        if (settings.threads <= 0) {
+                            throw new Exception("Number of threads must be positive");
+                        }
+                        break;
+                    case "--list-threads":
+                        try {
+                            settings.listThreads = Integer.parseInt(optionValue(args, arg++));
+                        } catch (NumberFormatException e) {
+                            throw new Exception("Wrong number of listing threads: " + e.getMessage());
+                        }
+                        if (settings.listThreads <= 0) {
+                            throw new Exception("Number of listing threads must be positive");
+                        }
+                        break;
+                    case "--hash":
+                        try {
+                            settings.algorithm = HashAlgorithm.forName(optionValue(args, arg++));
+                        } catch (IllegalArgumentException e) {
+                            throw new Exception(e.getMessage());
+                        }
+                        break;
+                    case "--cache":
+                        try {
+                            settings.cache = Paths.get(optionValue(args, arg++));
+                        } catch (InvalidPathException e) {
+                            throw new Exception("Invalid cache path: " + e.getMessage());
+                        }
+                        break;
+                    case "--progress":
+                        try {
+                            settings.progressSeconds = Integer.parseInt(optionValue(args, arg++));
+                        } catch (NumberFormatException e) {
+                            throw new Exception("Wrong progress period: " + e.getMessage());
+                        }
+                        break;
+                    case "--flush-on-error":
+                        settings.flushOnError = true;
+                        break;
+                    case "--jmx":
+                        settings.registerStatistics = true;
+                        break;
+                    default:
+                        throw new Exception("Unknown option: " + option);
+                }
+            }
+            if (args.length - arg != 2 || args[arg] == null || args[arg + 1] == null) {
                 throw new Exception("Wrong arguments");
             }
             try {
-                inputPath = Paths.get(args[0]);
+                inputPath = Paths.get(args[arg]);
             } catch (InvalidPathException e) {
                 throw new Exception("Invalid input path: " + e.getMessage());
             }
             try {
-                outputPath = Paths.get(args[1]);
+                outputPath = Paths.get(args[arg + 1]);
             } catch (InvalidPathException e) {
                 throw new Exception("Invalid output path: " + e.getMessage());
             }
@@ -62,7 +202,7 @@ public class RecursiveWalk {
                 }
             }
 
-            walk(inputPath, outputPath);
+            walk(inputPath, outputPath, settings);
 
         } catch (Exception e) {
             System.err.println(e.getMessage());
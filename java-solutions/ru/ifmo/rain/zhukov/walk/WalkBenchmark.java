@@ -0,0 +1,183 @@
+package ru.ifmo.rain.zhukov.walk;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmarks of {@link RecursiveWalk} and file hashing over synthetic trees.
+ * Files per second and megabytes per second are reported as {@code files} and {@code megabytes}
+ * secondary results.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WalkBenchmark {
+    /**
+     * Synthetic tree shapes.
+     */
+    public enum Tree {
+        TINY_FILES(10_000, 1, 128),
+        HUGE_FILES(4, 1, 128 * 1024 * 1024),
+        DEEP_NESTING(2_000, 200, 4 * 1024);
+
+        private final int files;
+        private final int depth;
+        private final int fileSize;
+
+        Tree(int files, int depth, int fileSize) {
+            this.files = files;
+            this.depth = depth;
+            this.fileSize = fileSize;
+        }
+
+        void create(Path root) throws IOException {
+            Random random = new Random(files);
+            byte[] content = new byte[Math.min(fileSize, 1024 * 1024)];
+            Path dir = root;
+            for (int i = 0; i < files; i++) {
+                if (i % (files / depth) == 0 && i > 0) {
+                    dir = Files.createDirectory(dir.resolve("d" + i));
+                }
+                Path file = dir.resolve("f" + i);
+                for (int written = 0; written < fileSize; written += content.length) {
+                    random.nextBytes(content);
+                    Files.write(file, content, written == 0 ? StandardOpenOption.CREATE_NEW : StandardOpenOption.APPEND);
+                }
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class TreeState {
+        @Param
+        public Tree tree;
+
+        Path root;
+        Path input;
+        Path output;
+        List<Path> files;
+        long bytes;
+
+        @Setup(Level.Trial)
+        public void setup() throws IOException {
+            root = Files.createTempDirectory("walk-benchmark");
+            Path data = Files.createDirectory(root.resolve("data"));
+            tree.create(data);
+            input = Files.writeString(root.resolve("input.txt"), data.toString() + System.lineSeparator());
+            output = root.resolve("output.txt");
+            files = new ArrayList<>();
+            try (var stream = Files.walk(data)) {
+                stream.filter(Files::isRegularFile).forEach(files::add);
+            }
+            for (Path file : files) {
+                bytes += Files.size(file);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            Files.walkFileTree(root, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    Files.delete(file);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+                    Files.delete(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        }
+    }
+
+    /**
+     * Processed volume, reported by JMH as rates.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Volume {
+        public long files;
+        public double megabytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            files = 0;
+            megabytes = 0;
+        }
+
+        void add(TreeState state) {
+            files += state.files.size();
+            megabytes += state.bytes / (1024.0 * 1024.0);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class WalkState {
+        @Param({"1", "4"})
+        public int threads;
+
+        @Param({"1", "4"})
+        public int listThreads;
+
+        WalkSettings settings;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            settings = new WalkSettings();
+            settings.threads = threads;
+            settings.listThreads = listThreads;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class HashState {
+        @Param({"4096", "65536", "1048576"})
+        public int bufferSize;
+
+        @Param({"fnv", "xxhash64", "sha256"})
+        public String algorithm;
+
+        ChunkedFileReader reader;
+        FileHasher hasher;
+
+        @Setup(Level.Trial)
+        public void setup() {
+            reader = new ChunkedFileReader(bufferSize, new WalkStatistics());
+            hasher = HashAlgorithm.forName(algorithm).create();
+        }
+    }
+
+    @Benchmark
+    public void walk(TreeState tree, WalkState walk, Volume volume) throws Exception {
+        RecursiveWalk.walk(tree.input, tree.output, walk.settings);
+        volume.add(tree);
+    }
+
+    @Benchmark
+    public void hash(TreeState tree, HashState hash, Volume volume, Blackhole blackhole) {
+        FileHasher hasher = hash.hasher;
+        for (Path file : tree.files) {
+            hasher.reset();
+            try {
+                hash.reader.read(file, hasher::update);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            blackhole.consume(hasher.digest());
+        }
+        volume.add(tree);
+    }
+}
@@ -0,0 +1,16 @@
+package ru.ifmo.rain.zhukov.walk;
+
+import java.nio.file.Path;
+
+/**
+ * Optional {@link RecursiveWalk} settings.
+ */
+class WalkSettings {
+    HashAlgorithm algorithm = HashAlgorithm.FNV;
+    int threads = 1;
+    int listThreads = 1;
+    Path cache = null;
+    boolean flushOnError = false;
+    int progressSeconds = 0;
+    boolean registerStatistics = false;
+}
@@ -0,0 +1,111 @@
+package ru.ifmo.rain.zhukov.walk;
+
+import ru.ifmo.rain.zhukov.metrics.LatencyHistogram;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters and per-phase timings of a single walk. Safe for concurrent use.
+ * Directory listing time is only measured by {@link ForkJoinWalker}, output write time is measured
+ * per written batch, and read time of a file excludes its hashing, see {@link ChunkedFileReader}.
+ */
+class WalkStatistics implements WalkStatisticsMXBean {
+
+    final LatencyHistogram list = new LatencyHistogram();
+    final LatencyHistogram open = new LatencyHistogram();
+    final LatencyHistogram read = new LatencyHistogram();
+    final LatencyHistogram write = new LatencyHistogram();
+
+    private final LongAdder files = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final long startNanos = System.nanoTime();
+    private volatile String currentDirectory = "";
+
+    void fileVisited() {
+        files.increment();
+    }
+
+    void bytesHashed(long count) {
+        bytes.add(count);
+    }
+
+    void cacheHit() {
+        cacheHits.increment();
+    }
+
+    void failed() {
+        failures.increment();
+    }
+
+    void enterDirectory(Path dir) {
+        currentDirectory = dir.toString();
+    }
+
+    @Override
+    public long getFilesVisited() {
+        return files.sum();
+    }
+
+    @Override
+    public long getBytesHashed() {
+        return bytes.sum();
+    }
+
+    @Override
+    public long getCacheHits() {
+        return cacheHits.sum();
+    }
+
+    @Override
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    @Override
+    public String getCurrentDirectory() {
+        return currentDirectory;
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getListLatency() {
+        return list.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getOpenLatency() {
+        return open.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getReadLatency() {
+        return read.snapshot();
+    }
+
+    @Override
+    public LatencyHistogram.Snapshot getWriteLatency() {
+        return write.snapshot();
+    }
+
+    /**
+     * One-line human readable progress report.
+     */
+    String report() {
+        double seconds = Math.max(System.nanoTime() - startNanos, 1) / 1e9;
+        long filesVisited = getFilesVisited();
+        double megabytes = getBytesHashed() / (1024.0 * 1024.0);
+        return String.format("%.0fs: %d files (%.0f/s), %.1f MiB hashed (%.1f MiB/s), %d cached, %d failed, in %s%n"
+                        + "  list: %s%n  open: %s%n  read: %s%n  write: %s",
+                seconds, filesVisited, filesVisited / seconds, megabytes, megabytes / seconds,
+                getCacheHits(), getFailures(), currentDirectory,
+                list.snapshot(), open.snapshot(), read.snapshot(), write.snapshot());
+    }
+}
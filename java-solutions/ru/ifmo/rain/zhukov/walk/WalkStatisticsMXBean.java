@@ -0,0 +1,28 @@
+package ru.ifmo.rain.zhukov.walk;
+
+import ru.ifmo.rain.zhukov.metrics.LatencyHistogram;
+
+/**
+ * JMX view of {@link WalkStatistics}.
+ */
+public interface WalkStatisticsMXBean {
+    long getFilesVisited();
+
+    long getBytesHashed();
+
+    long getCacheHits();
+
+    long getFailures();
+
+    String getCurrentDirectory();
+
+    long getElapsedMillis();
+
+    LatencyHistogram.Snapshot getListLatency();
+
+    LatencyHistogram.Snapshot getOpenLatency();
+
+    LatencyHistogram.Snapshot getReadLatency();
+
+    LatencyHistogram.Snapshot getWriteLatency();
+}
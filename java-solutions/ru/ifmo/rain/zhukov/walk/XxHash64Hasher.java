@@ -0,0 +1,110 @@
+package ru.ifmo.rain.zhukov.walk;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Streaming 64-bit xxHash with zero seed. Consumes input eight bytes per step.
+ */
+class XxHash64Hasher implements FileHasher {
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+    private static final int STRIPE = 32;
+
+    private final ByteBuffer tail = ByteBuffer.allocate(STRIPE).order(ByteOrder.LITTLE_ENDIAN);
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+    private long total;
+
+    XxHash64Hasher() {
+        reset();
+    }
+
+    @Override
+    public void reset() {
+        v1 = PRIME1 + PRIME2;
+        v2 = PRIME2;
+        v3 = 0;
+        v4 = -PRIME1;
+        total = 0;
+        tail.clear();
+    }
+
+    @Override
+    public void update(ByteBuffer buffer) {
+        ByteBuffer input = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        total += input.remaining();
+        if (tail.position() > 0) {
+            while (tail.hasRemaining() && input.hasRemaining()) {
+                tail.put(input.get());
+            }
+            if (tail.hasRemaining()) {
+                return;
+            }
+            stripe(tail, 0);
+            tail.clear();
+        }
+        int position = input.position();
+        int end = input.limit();
+        for (; end - position >= STRIPE; position += STRIPE) {
+            stripe(input, position);
+        }
+        input.position(position);
+        tail.put(input);
+    }
+
+    private void stripe(ByteBuffer buffer, int offset) {
+        v1 = round(v1, buffer.getLong(offset));
+        v2 = round(v2, buffer.getLong(offset + 8));
+        v3 = round(v3, buffer.getLong(offset + 16));
+        v4 = round(v4, buffer.getLong(offset + 24));
+    }
+
+    private static long round(long acc, long input) {
+        return Long.rotateLeft(acc + input * PRIME2, 31) * PRIME1;
+    }
+
+    private static long merge(long acc, long value) {
+        return (acc ^ round(0, value)) * PRIME1 + PRIME4;
+    }
+
+    @Override
+    public byte[] digest() {
+        long hash;
+        if (total >= STRIPE) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = merge(hash, v1);
+            hash = merge(hash, v2);
+            hash = merge(hash, v3);
+            hash = merge(hash, v4);
+        } else {
+            hash = PRIME5;
+        }
+        hash += total;
+
+        int length = tail.position();
+        int i = 0;
+        for (; i + 8 <= length; i += 8) {
+            hash = Long.rotateLeft(hash ^ round(0, tail.getLong(i)), 27) * PRIME1 + PRIME4;
+        }
+        if (i + 4 <= length) {
+            hash = Long.rotateLeft(hash ^ (tail.getInt(i) & 0xFFFFFFFFL) * PRIME1, 23) * PRIME2 + PRIME3;
+            i += 4;
+        }
+        for (; i < length; i++) {
+            hash = Long.rotateLeft(hash ^ (tail.get(i) & 0xFFL) * PRIME5, 11) * PRIME1;
+        }
+
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return ByteBuffer.allocate(Long.BYTES).putLong(hash).array();
+    }
+}
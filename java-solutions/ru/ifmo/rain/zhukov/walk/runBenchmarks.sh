@@ -0,0 +1,13 @@
+#!/bin/bash
+
+WD="$( cd "$( dirname "${BASH_SOURCE[0]}" )" >/dev/null 2>&1 && pwd)"
+
+ROOT=${WD}/../../../../../
+LIB=${JMH_LIB:-${ROOT}/../java-advanced-2020/lib/jmh}
+OUT=${WD}/_build/benchmarks/walk
+
+rm -rf ${OUT}
+
+javac -implicit:class -cp "${LIB}/*:${ROOT}" -d ${OUT} ${WD}/*.java
+
+java -cp "${LIB}/*:${OUT}" org.openjdk.jmh.Main "ru.ifmo.rain.zhukov.walk.WalkBenchmark" $@